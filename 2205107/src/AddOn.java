@@ -0,0 +1,26 @@
+// Registry of the optional add-ons. Each constant is a shared flyweight holding the add-on's
+// name and flat price; decorated items only record which add-ons they carry (see AddOnSet).
+public enum AddOn {
+  PRACTICE_QUESTION_SET("Practice Question Set", 10_00),
+  LIVE_MENTOR_SUPPORT("Live Mentor Support", 20_00);
+
+  private final String displayName;
+  private final long priceCents;
+
+  AddOn(String displayName, long priceCents) {
+    this.displayName = displayName;
+    this.priceCents = priceCents;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  public long getPriceCents() {
+    return priceCents;
+  }
+
+  public double getPrice() {
+    return Money.toDollars(priceCents);
+  }
+}
@@ -1,19 +1,62 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Add-on decorators flatten: each one keeps the undecorated base item at the bottom of its stack
+// and the interned AddOnSet of every add-on on it, so pricing is the base price plus the set's
+// precomputed total however deep the stack is. The wrappee link stays live. Re-pointing any
+// decorator restacks it and every decorator above it, which is why each one remembers the
+// decorators that flattened through it. A subclass that overrides pricing is not flattened
+// through; the layers above it treat it as their base item, so the override still shows.
+//
+// A decorator links to its wrappee on first use rather than in the constructor, so it never hands
+// out a half-built this. Linking and restacking take STACK_LOCK, as they touch several decorators.
 public abstract class AddOnDecorator implements Purchasable {
+  // Whether a decorator class prices as wrappee plus add-on, so the layers above may skip it
+  private static final ClassValue<Boolean> FLATTENS = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        return type.getMethod("calculatePriceCents").getDeclaringClass() == AddOnDecorator.class
+            && type.getMethod("calculateDuration").getDeclaringClass() == AddOnDecorator.class
+            && type.getMethod("summarize").getDeclaringClass() == AddOnDecorator.class;
+      } catch (NoSuchMethodException e) {
+        throw new AssertionError(e);
+      }
+    }
+  };
+
+  private static final Object STACK_LOCK = new Object();
+
   private Purchasable purchasableItem; //Wrappee
+  private final AddOn addOn; // Shared flyweight; carries this layer's name and price
+  private volatile boolean linked; // baseItem and addOns are set and the wrappee knows this decorator
+  private Purchasable baseItem; // Bottom of the stack, below every flattened layer
+  private AddOnSet addOns; // Every add-on from baseItem up to and including this layer
+  private List<AddOnDecorator> wrappers; // Decorators flattened through this one; null if none
 
   //Constructor
-  public AddOnDecorator(Purchasable purchasable) {
+  public AddOnDecorator(Purchasable purchasable, AddOn addOn) {
     this.purchasableItem = purchasable;
+    this.addOn = addOn;
   }
 
   @Override
-  public double calculatePrice() {
-    return purchasableItem.calculatePrice();
+  public long calculatePriceCents() {
+    link();
+    return baseItem.calculatePriceCents() + addOns.getPriceCents();
   }
 
   @Override
   public double calculateDuration() {
-    return purchasableItem.calculateDuration();
+    link();
+    return baseItem.calculateDuration();
+  }
+
+  @Override
+  public PurchaseSummary summarize() {
+    link();
+    PurchaseSummary base = baseItem.summarize();
+    return base.withPriceCents(base.getPriceCents() + addOns.getPriceCents());
   }
 
   //Getters and Setters
@@ -22,16 +65,88 @@ public abstract class AddOnDecorator implements Purchasable {
   }
 
   public void setPurchasableItem(Purchasable purchasable) {
-    this.purchasableItem = purchasable;
+    synchronized (STACK_LOCK) {
+      if (linked && purchasableItem instanceof AddOnDecorator inner && inner.wrappers != null) {
+        inner.wrappers.remove(this);
+      }
+      this.purchasableItem = purchasable;
+      linked = false;
+      link();
+    }
+  }
+
+  public AddOn getAddOn() {
+    return addOn;
+  }
+
+  // Undecorated item at the bottom of the add-on stack
+  public Purchasable getBaseItem() {
+    link();
+    return baseItem;
+  }
+
+  // The whole stack as a flat add-on set, innermost first
+  public AddOnSet getAddOns() {
+    link();
+    return addOns;
+  }
+
+  @Override
+  public PurchaseSummary record(SummaryTape tape) {
+    int slot = tape.reserve();
+    PurchaseSummary base = purchasableItem.record(tape);
+    PurchaseSummary summary = base.withPriceCents(base.getPriceCents() + addOn.getPriceCents());
+    tape.fill(slot, summary);
+    return summary;
   }
 
   @Override
-  public void printDetails(String indent) {
-    purchasableItem.printDetails(indent);
+  public void render(StringBuilder out, String indent, SummaryTape tape) {
+    tape.next(); // Add-on lines show the add-on prices, not the combined total
+    purchasableItem.render(out, indent, tape); // The base item, then inner add-ons
+    out.append(indent).append("Add-On: ").append(addOn.getDisplayName()).append(Render.NL);
+    MoneyFormat.appendMoneyCents(out.append(indent).append("Price: "), addOn.getPriceCents()).append(Render.NL);
   }
 
   @Override
   public int getModuleCount() {
     return purchasableItem.getModuleCount();
   }
+
+  // Registers with a flattenable inner decorator, so re-pointing it restacks this one
+  private void link() {
+    if (linked) {
+      return;
+    }
+    synchronized (STACK_LOCK) {
+      if (linked) {
+        return; // Another thread linked it first
+      }
+      if (purchasableItem instanceof AddOnDecorator inner && FLATTENS.get(inner.getClass())) {
+        inner.link();
+        if (inner.wrappers == null) {
+          inner.wrappers = new ArrayList<>(1);
+        }
+        inner.wrappers.add(this);
+      }
+      restack();
+      linked = true; // Publishes baseItem and addOns
+    }
+  }
+
+  // Recomputes the flat view from the wrappee, then for every decorator above. Holds STACK_LOCK.
+  private void restack() {
+    if (purchasableItem instanceof AddOnDecorator inner && FLATTENS.get(inner.getClass())) {
+      baseItem = inner.baseItem; // Linked before this one
+      addOns = inner.addOns.with(addOn);
+    } else {
+      baseItem = purchasableItem;
+      addOns = AddOnSet.EMPTY.with(addOn);
+    }
+    if (wrappers != null) {
+      for (AddOnDecorator wrapper : wrappers) {
+        wrapper.restack();
+      }
+    }
+  }
 }
@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+// The add-ons stacked on one item, in the order they were applied, with a per-add-on count
+// vector and the precomputed total price. Instances are interned: every distinct stacking
+// sequence exists once, so with() allocates only the first time a sequence is seen and items
+// with the same add-ons share one set.
+public final class AddOnSet {
+  public static final AddOnSet EMPTY = new AddOnSet(new AddOn[0], new int[AddOn.values().length], 0);
+
+  private final AddOn[] sequence;
+  private final int[] counts; // Indexed by AddOn.ordinal()
+  private final long priceCents;
+  private final AddOnSet[] next = new AddOnSet[AddOn.values().length]; // Interned successors
+
+  private AddOnSet(AddOn[] sequence, int[] counts, long priceCents) {
+    this.sequence = sequence;
+    this.counts = counts;
+    this.priceCents = priceCents;
+  }
+
+  // This set with one more add-on stacked on top
+  public AddOnSet with(AddOn addOn) {
+    int slot = addOn.ordinal();
+    synchronized (next) {
+      if (next[slot] == null) {
+        AddOn[] longer = Arrays.copyOf(sequence, sequence.length + 1);
+        longer[sequence.length] = addOn;
+        int[] moreCounts = counts.clone();
+        moreCounts[slot]++;
+        next[slot] = new AddOnSet(longer, moreCounts, priceCents + addOn.getPriceCents());
+      }
+      return next[slot];
+    }
+  }
+
+  public long getPriceCents() {
+    return priceCents;
+  }
+
+  public double getPrice() {
+    return Money.toDollars(priceCents);
+  }
+
+  public int count(AddOn addOn) {
+    return counts[addOn.ordinal()];
+  }
+
+  public int size() {
+    return sequence.length;
+  }
+
+  // Add-on applied at position index, innermost (first applied) at 0
+  public AddOn get(int index) {
+    return sequence[index];
+  }
+}
@@ -1,21 +1,150 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
 public class App {
+  // Usage: App [catalog.csv | catalog.snapshot]
+  //        App --write-snapshot catalog.csv catalog.snapshot
+  //        App --batch orders.csv results.csv [catalog.csv | catalog.snapshot]
+  //        App --serve port [catalog.csv | catalog.snapshot]
+  // Without a file the built-in sample catalog is used.
   public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      if (args.length != 3 && args.length != 4) {
+        System.err.println("Usage: App --batch <orders.csv> <results.csv> [catalog.csv | catalog.snapshot]");
+        System.exit(2);
+      }
+      batch(Path.of(args[1]), Path.of(args[2]), args.length == 4 ? Path.of(args[3]) : null);
+      return;
+    }
+
+    if (args.length > 0 && args[0].equals("--write-snapshot")) {
+      if (args.length != 3) {
+        System.err.println("Usage: App --write-snapshot <catalog.csv> <catalog.snapshot>");
+        System.exit(2);
+      }
+      OffHeapCatalogStore.Builder builder = new OffHeapCatalogStore.Builder();
+      try {
+        CatalogLoader.read(Path.of(args[1]), builder);
+      } catch (IOException e) {
+        builder.abort();
+        System.err.println("Could not load catalog " + args[1] + ": " + e.getMessage());
+        System.exit(1);
+      }
+      try (OffHeapCatalogStore store = builder.build()) {
+        CatalogSnapshot.write(store, Path.of(args[2]));
+        System.out.printf("Wrote %d modules, %d courses and %d lessons to %s%n",
+            store.moduleCount(), store.courseCount(), store.lessonCount(), args[2]);
+        System.out.println(builder.titleReport());
+      } catch (IOException e) {
+        System.err.println("Could not write snapshot: " + e.getMessage());
+        System.exit(1);
+      }
+      return;
+    }
+
+    if (args.length > 0 && args[0].equals("--serve")) {
+      if (args.length != 2 && args.length != 3) {
+        System.err.println("Usage: App --serve <port> [catalog.csv | catalog.snapshot]");
+        System.exit(2);
+      }
+      serve(Integer.parseInt(args[1]), args.length == 3 ? Path.of(args[2]) : null);
+      return;
+    }
+
+    if (args.length == 0) {
+      run(CatalogSeeder.createDefaultCatalog());
+      return;
+    }
+
+    // File catalogs stay off-heap; the app only hydrates the parts that are browsed
+    OffHeapCatalogStore store;
+    try {
+      store = openStore(Path.of(args[0]));
+    } catch (IOException e) {
+      System.err.println("Could not load catalog " + args[0] + ": " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+    try (store) {
+      run(new LazyCatalog(store, LazyCatalog.DEFAULT_MAX_LOADED_LESSONS).modules());
+    }
+  }
+
+  private static void run(List<Module> catalog) {
     try (Scanner scanner = new Scanner(System.in)) {
-      EduLearnApp app = new EduLearnApp(scanner, CatalogSeeder.createDefaultCatalog());
+      EduLearnApp app = new EduLearnApp(scanner, catalog);
       app.run();
     }
   }
+
+  private static void batch(Path orders, Path results, Path catalogFile) {
+    List<Module> catalog = loadFully(catalogFile);
+    BatchCheckout checkout = new BatchCheckout(catalog, Runtime.getRuntime().availableProcessors(),
+        BatchCheckout.DEFAULT_CHUNK_SIZE);
+    long start = System.nanoTime();
+    try (Reader in = Files.newBufferedReader(orders, StandardCharsets.UTF_8);
+        Writer out = Files.newBufferedWriter(results, StandardCharsets.UTF_8)) {
+      BatchCheckout.Result result = checkout.run(in, out);
+      System.out.printf("Priced %d orders (%d failed) in %d ms, results in %s%n", result.getOrders(),
+          result.getFailed(), (System.nanoTime() - start) / 1_000_000, results);
+    } catch (IOException e) {
+      System.err.println("Batch checkout failed: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  // Listens on loopback until the process is stopped
+  private static void serve(int port, Path catalogFile) {
+    List<Module> catalog = loadFully(catalogFile);
+    try {
+      PricingServer server = new PricingServer(catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      server.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+      System.out.println("Serving quotes on http://" + server.getAddress().getHostString() + ":"
+          + server.getAddress().getPort() + "/");
+    } catch (IOException e) {
+      System.err.println("Could not start server: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  // Orders may reference any ID, so batch and server modes load the whole catalog onto the heap
+  private static List<Module> loadFully(Path catalogFile) {
+    if (catalogFile == null) {
+      return CatalogSeeder.createDefaultCatalog();
+    }
+    try (OffHeapCatalogStore store = openStore(catalogFile)) {
+      return CatalogLoader.load(store);
+    } catch (IOException e) {
+      System.err.println("Could not load catalog " + catalogFile + ": " + e.getMessage());
+      System.exit(1);
+      return null;
+    }
+  }
+
+  private static OffHeapCatalogStore openStore(Path path) throws IOException {
+    if (CatalogSnapshot.isSnapshot(path)) {
+      return CatalogSnapshot.open(path);
+    }
+    return CatalogLoader.loadOffHeap(path);
+  }
 }
 
 class EduLearnApp {
-  private static final int REPEAT_COUNT = 60;
+  private static final int REPEAT_COUNT = Render.RULE_WIDTH;
 
   private final InputHelper input;
   private final List<Module> availableModules;
   private final CartService cartService;
+  private final RenderCache renderCache = new RenderCache(RenderCache.DEFAULT_BUDGET_CHARS);
   private Customer currentCustomer;
 
   EduLearnApp(Scanner scanner, List<Module> availableModules) {
@@ -74,17 +203,17 @@ class EduLearnApp {
 
   private void viewModule(Module module) {
     while (true) {
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("MODULE: " + module.getTitle());
-      System.out.println("-".repeat(REPEAT_COUNT));
-      System.out.println("Price: $" + String.format("%.2f", module.calculatePrice()));
-      System.out.println("Duration: " + module.calculateDuration() + " hours");
-      System.out.println("\nModule Details:");
-      module.printDetails("> ");
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("1. Add Module to Cart (with add-ons)");
-      System.out.println("2. Browse Courses in this Module");
-      System.out.println("3. Back to Module List");
+      StringBuilder screen = new StringBuilder(1024);
+      heading(screen, "MODULE: " + module.getTitle());
+      MoneyFormat.appendMoneyCents(screen.append("Price: "), module.calculatePriceCents()).append(Render.NL);
+      screen.append("Duration: ").append(module.calculateDuration()).append(" hours").append(Render.NL);
+      screen.append(Render.NL).append("Module Details:").append(Render.NL);
+      screen.append(renderCache.render(module, "> "));
+      rule(screen.append(Render.NL), '-');
+      screen.append("1. Add Module to Cart (with add-ons)").append(Render.NL);
+      screen.append("2. Browse Courses in this Module").append(Render.NL);
+      screen.append("3. Back to Module List").append(Render.NL);
+      System.out.print(screen);
 
       int choice = input.readIntInRange("Enter your choice (1-3): ", 1, 3);
       switch (choice) {
@@ -124,17 +253,17 @@ class EduLearnApp {
 
   private void viewCourse(Course course) {
     while (true) {
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("COURSE: " + course.getTitle());
-      System.out.println("-".repeat(REPEAT_COUNT));
-      System.out.println("Price: $" + String.format("%.2f", course.calculatePrice()));
-      System.out.println("Duration: " + course.calculateDuration() + " hours");
-      System.out.println("\nCourse Details:");
-      course.printDetails("> ");
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("1. Add Course to Cart");
-      System.out.println("2. Browse Lessons in this Course");
-      System.out.println("3. Back to Course List");
+      StringBuilder screen = new StringBuilder(1024);
+      heading(screen, "COURSE: " + course.getTitle());
+      MoneyFormat.appendMoneyCents(screen.append("Price: "), course.calculatePriceCents()).append(Render.NL);
+      screen.append("Duration: ").append(course.calculateDuration()).append(" hours").append(Render.NL);
+      screen.append(Render.NL).append("Course Details:").append(Render.NL);
+      screen.append(renderCache.render(course, "> "));
+      rule(screen.append(Render.NL), '-');
+      screen.append("1. Add Course to Cart").append(Render.NL);
+      screen.append("2. Browse Lessons in this Course").append(Render.NL);
+      screen.append("3. Back to Course List").append(Render.NL);
+      System.out.print(screen);
 
       int choice = input.readIntInRange("Enter your choice (1-3): ", 1, 3);
       if (choice == 1) {
@@ -173,16 +302,16 @@ class EduLearnApp {
 
   private void viewLesson(Lesson lesson) {
     while (true) {
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("LESSON: " + lesson.getTitle());
-      System.out.println("-".repeat(REPEAT_COUNT));
-      System.out.println("Price: $" + String.format("%.2f", lesson.calculatePrice()));
-      System.out.println("Duration: " + lesson.calculateDuration() + " hours");
-      System.out.println("\nLesson Details:");
-      lesson.printDetails("> ");
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("1. Add Lesson to Cart");
-      System.out.println("2. Back to Lesson List");
+      StringBuilder screen = new StringBuilder(512);
+      heading(screen, "LESSON: " + lesson.getTitle());
+      MoneyFormat.appendMoneyCents(screen.append("Price: "), lesson.calculatePriceCents()).append(Render.NL);
+      screen.append("Duration: ").append(lesson.calculateDuration()).append(" hours").append(Render.NL);
+      screen.append(Render.NL).append("Lesson Details:").append(Render.NL);
+      screen.append(renderCache.render(lesson, "> "));
+      rule(screen.append(Render.NL), '-');
+      screen.append("1. Add Lesson to Cart").append(Render.NL);
+      screen.append("2. Back to Lesson List").append(Render.NL);
+      System.out.print(screen);
 
       int choice = input.readIntInRange("Enter your choice (1-2): ", 1, 2);
       if (choice == 1) {
@@ -196,15 +325,19 @@ class EduLearnApp {
   }
 
   private void addModuleToCart(Module module) {
-    System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-    System.out.println("ADD-ONS SELECTION");
-    System.out.println("-".repeat(REPEAT_COUNT));
-    System.out.println("Base Price: $" + String.format("%.2f", module.calculatePrice()));
-    System.out.println("\nAvailable Add-ons:");
-    System.out.println("1. Practice Question Set (+$10.00)");
-    System.out.println("2. Live Mentor Support (+$20.00)");
-    System.out.println("3. Both Add-ons (+$30.00)");
-    System.out.println("4. None (base module only)");
+    StringBuilder screen = new StringBuilder(512);
+    heading(screen, "ADD-ONS SELECTION");
+    MoneyFormat.appendMoneyCents(screen.append("Base Price: "), module.calculatePriceCents()).append(Render.NL);
+    screen.append(Render.NL).append("Available Add-ons:").append(Render.NL);
+    long practicePrice = AddOn.PRACTICE_QUESTION_SET.getPriceCents();
+    long mentorPrice = AddOn.LIVE_MENTOR_SUPPORT.getPriceCents();
+    MoneyFormat.appendMoneyCents(screen.append("1. ").append(AddOn.PRACTICE_QUESTION_SET.getDisplayName()).append(" (+"),
+        practicePrice).append(')').append(Render.NL);
+    MoneyFormat.appendMoneyCents(screen.append("2. ").append(AddOn.LIVE_MENTOR_SUPPORT.getDisplayName()).append(" (+"),
+        mentorPrice).append(')').append(Render.NL);
+    MoneyFormat.appendMoneyCents(screen.append("3. Both Add-ons (+"), practicePrice + mentorPrice).append(')').append(Render.NL);
+    screen.append("4. None (base module only)").append(Render.NL);
+    System.out.print(screen);
 
     int choice = input.readIntInRange("Enter your choice (1-4): ", 1, 4);
     Purchasable finalItem = switch (choice) {
@@ -223,12 +356,14 @@ class EduLearnApp {
     }
 
     cartService.addItem(finalItem);
-    System.out.println("Module added to cart. New price: $" + String.format("%.2f", finalItem.calculatePrice()));
+    System.out.println(MoneyFormat.appendMoneyCents(new StringBuilder("Module added to cart. New price: "),
+        finalItem.calculatePriceCents()));
   }
 
   private void addNonModuleToCart(Purchasable item, String itemType) {
     cartService.addItem(item);
-    System.out.println(itemType + " added to cart. Price: $" + String.format("%.2f", item.calculatePrice()));
+    System.out.println(MoneyFormat.appendMoneyCents(new StringBuilder(itemType).append(" added to cart. Price: "),
+        item.calculatePriceCents()));
   }
 
   private void viewCart() {
@@ -238,26 +373,24 @@ class EduLearnApp {
     }
 
     while (true) {
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("SHOPPING CART");
-      System.out.println("-".repeat(REPEAT_COUNT));
-
-      double total = 0;
-      int count = 0;
-      for (Purchasable item : cartService.getItems()) {
-        count++;
-        System.out.println("\nItem " + count + ":");
-        item.printDetails("> ");
-        System.out.println("  Price: $" + String.format("%.2f", item.calculatePrice()));
-        total += item.calculatePrice();
+      StringBuilder screen = new StringBuilder(1024);
+      heading(screen, "SHOPPING CART");
+
+      CartService.Snapshot cart = cartService.snapshot();
+      List<Purchasable> items = cart.getItems();
+      for (int i = 0; i < items.size(); i++) {
+        screen.append(Render.NL).append("Item ").append(i + 1).append(':').append(Render.NL);
+        items.get(i).render(screen, "> ");
+        MoneyFormat.appendMoneyCents(screen.append("  Price: "), cart.getItemSummary(i).getPriceCents()).append(Render.NL);
       }
 
-      System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-      System.out.println("Subtotal: $" + String.format("%.2f", total));
-      System.out.println("-".repeat(REPEAT_COUNT));
-      System.out.println("1. Remove Item from Cart");
-      System.out.println("2. Clear Cart");
-      System.out.println("3. Back to Main Menu");
+      rule(screen.append(Render.NL), '-');
+      MoneyFormat.appendMoneyCents(screen.append("Subtotal: "), cart.getTotals().getPriceCents()).append(Render.NL);
+      rule(screen, '-');
+      screen.append("1. Remove Item from Cart").append(Render.NL);
+      screen.append("2. Clear Cart").append(Render.NL);
+      screen.append("3. Back to Main Menu").append(Render.NL);
+      System.out.print(screen);
 
       int choice = input.readIntInRange("Enter your choice (1-3): ", 1, 3);
       switch (choice) {
@@ -296,60 +429,12 @@ class EduLearnApp {
     boolean isFromDevCountry = input.readYesNo("Are you from a developing country? (yes/no): ");
     currentCustomer = new Customer(name, isFromDevCountry, isStudent);
 
-    System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-    System.out.println("ORDER SUMMARY");
-    System.out.println("-".repeat(REPEAT_COUNT));
-    System.out.println("Customer: " + currentCustomer.getName());
-    System.out.println("Student: " + (currentCustomer.isStudent() ? "Yes" : "No"));
-    System.out.println("From Developing Country: " + (currentCustomer.isFromDevelopingCountry() ? "Yes" : "No"));
-    System.out.println("\nItems in Cart:");
-
-    Cart finalCart = cartService.toCart();
-    double subtotal = finalCart.calculatePrice();
-    double duration = finalCart.calculateDuration();
-    int moduleCount = finalCart.getModuleCount();
-
-    int itemNum = 0;
-    for (Purchasable item : cartService.getItems()) {
-      itemNum++;
-      System.out.println("\n  Item " + itemNum + ":");
-      item.printDetails("    ");
-      System.out.println("    Price: $" + String.format("%.2f", item.calculatePrice()));
-    }
-
-    System.out.println("\n" + "-".repeat(REPEAT_COUNT));
-    System.out.println("Subtotal: $" + String.format("%.2f", subtotal));
-    System.out.println("Total Duration: " + duration + " hours");
-    System.out.println("Module Count: " + moduleCount);
-    System.out.println("-".repeat(REPEAT_COUNT));
-
-    Purchasable checkout = new MultiModuleDiscount(
-        new DevelopingCountryStudentDiscount(
-            new SpecialDiscount(finalCart),
-            currentCustomer));
-
-    double finalPrice = checkout.calculatePrice();
-    double savings = subtotal - finalPrice;
-
-    System.out.println("\nDISCOUNTS APPLIED:");
-    System.out.println("-".repeat(REPEAT_COUNT));
-
-    if (duration >= 5) {
-      System.out.println("Special Discount (duration >= 5 hours): -$12.00");
-    }
-    if (moduleCount >= 2) {
-      System.out.println("Multi-Module Discount (2+ modules): -$15.00");
-    }
-    if (isStudent && isFromDevCountry) {
-      System.out.println("Developing Country Student Discount: -$10.00");
-    }
+    PriceBreakdown breakdown = OrderPricer.price(cartService.snapshot(), currentCustomer);
 
-    System.out.println("-".repeat(REPEAT_COUNT));
-    System.out.println("FINAL PRICE: $" + String.format("%.2f", finalPrice));
-    if (savings > 0) {
-      System.out.println("Total Savings: $" + String.format("%.2f", savings));
-    }
-    System.out.println("-".repeat(REPEAT_COUNT));
+    StringBuilder screen = new StringBuilder(2048);
+    heading(screen, "ORDER SUMMARY");
+    Render.receipt(screen, currentCustomer, breakdown);
+    System.out.print(screen);
 
     boolean confirm = input.readYesNo("\nConfirm purchase? (yes/no): ");
     if (confirm) {
@@ -362,4 +447,15 @@ class EduLearnApp {
       System.out.println("Purchase cancelled. Returning to main menu.");
     }
   }
-}
\ No newline at end of file
+
+  // Blank line, then a title between two rules
+  private static void heading(StringBuilder screen, String title) {
+    rule(screen.append(Render.NL), '-');
+    screen.append(title).append(Render.NL);
+    rule(screen, '-');
+  }
+
+  private static void rule(StringBuilder screen, char c) {
+    Render.rule(screen, c);
+  }
+}
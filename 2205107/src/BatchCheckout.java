@@ -0,0 +1,177 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Prices a file of orders without the interactive menu. The format is CSV with one order per line:
+//
+//   <order id>,<customer name>,<student y/n>,<developing country y/n>,<item>[,<item>...]
+//
+// where each item is a catalog ID with optional add-ons as read by OrderPricer.item, e.g. 9+P+M.
+// Quoting, blank lines and # comments follow CatalogLoader.
+//
+// Each order gets one result line, in input order:
+//
+//   <order id>,OK,<subtotal>,<discounts>,<final price>,<applied discounts separated by ;>
+//   <order id>,ERROR,,,,<message>
+//
+// A bad order is reported on its own line and does not stop the run. Lines are read in chunks
+// that are priced on a worker pool while earlier chunks are written out. At most window chunks
+// are in flight, so memory stays bounded however long the file is.
+final class BatchCheckout {
+  static final String HEADER = "order,status,subtotal,discounts,final,detail";
+  static final int DEFAULT_CHUNK_SIZE = 1024;
+
+  private final OrderPricer pricer;
+  private final int threads;
+  private final int chunkSize;
+  private final int window;
+
+  // The catalog must not change while orders are priced; see OrderPricer
+  BatchCheckout(List<Module> catalog, int threads, int chunkSize) {
+    if (threads < 1 || chunkSize < 1) {
+      throw new IllegalArgumentException("threads and chunkSize must be positive");
+    }
+    this.pricer = new OrderPricer(catalog);
+    this.threads = threads;
+    this.chunkSize = chunkSize;
+    this.window = threads * 2;
+  }
+
+  // Counts of one run
+  static final class Result {
+    private final long orders;
+    private final long failed;
+
+    Result(long orders, long failed) {
+      this.orders = orders;
+      this.failed = failed;
+    }
+
+    long getOrders() {
+      return orders;
+    }
+
+    long getFailed() {
+      return failed;
+    }
+  }
+
+  Result run(Reader source, Writer out) throws IOException {
+    BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source, 1 << 16);
+    out.write(HEADER);
+    out.write('\n');
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+    long orders = 0;
+    long failed = 0;
+    try {
+      int lineNumber = 0;
+      List<String> lines = new ArrayList<>(chunkSize);
+      int firstLine = 1;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+          line = line.substring(1); // Byte order mark
+        }
+        if (lines.isEmpty()) {
+          firstLine = lineNumber;
+        }
+        lines.add(line);
+        if (lines.size() == chunkSize) {
+          if (inFlight.size() == window) {
+            Chunk done = await(inFlight.removeFirst());
+            out.write(done.text);
+            orders += done.orders;
+            failed += done.failed;
+          }
+          List<String> chunk = lines;
+          int start = firstLine;
+          inFlight.addLast(pool.submit(() -> price(chunk, start)));
+          lines = new ArrayList<>(chunkSize);
+        }
+      }
+      if (!lines.isEmpty()) {
+        List<String> chunk = lines;
+        int start = firstLine;
+        inFlight.addLast(pool.submit(() -> price(chunk, start)));
+      }
+      while (!inFlight.isEmpty()) {
+        Chunk done = await(inFlight.removeFirst());
+        out.write(done.text);
+        orders += done.orders;
+        failed += done.failed;
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    out.flush();
+    return new Result(orders, failed);
+  }
+
+  // Result lines for consecutive input lines starting at firstLine
+  private record Chunk(String text, int orders, int failed) {
+  }
+
+  private Chunk price(List<String> lines, int firstLine) {
+    StringBuilder text = new StringBuilder(lines.size() * 64);
+    List<String> fields = new ArrayList<>();
+    int orders = 0;
+    int failed = 0;
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      orders++;
+      if (!priceOrder(line, firstLine + i, fields, text)) {
+        failed++;
+      }
+    }
+    return new Chunk(text.toString(), orders, failed);
+  }
+
+  // Appends one result line; false when the order could not be priced
+  private boolean priceOrder(String line, int lineNumber, List<String> fields, StringBuilder out) {
+    String orderId = "";
+    try {
+      CatalogLoader.split(line, lineNumber, fields);
+      orderId = fields.get(0).trim();
+      if (fields.size() < 5) {
+        throw new CatalogFormatException(lineNumber, "orders need an ID, a customer, two flags and at least one item");
+      }
+      Customer customer = new Customer(fields.get(1).trim(),
+          OrderPricer.flag(fields.get(3), "developing country"),
+          OrderPricer.flag(fields.get(2), "student"));
+      PriceBreakdown breakdown = pricer.price(pricer.items(fields, 4), customer);
+      OrderPricer.appendField(out, orderId).append(",OK,");
+      OrderPricer.appendResult(out, breakdown).append('\n');
+      return true;
+    } catch (CatalogFormatException | IllegalArgumentException e) {
+      OrderPricer.appendField(out, orderId).append(",ERROR,,,,");
+      OrderPricer.appendField(out,
+          e instanceof CatalogFormatException ? e.getMessage() : "Line " + lineNumber + ": " + e.getMessage())
+          .append('\n');
+      return false;
+    }
+  }
+
+  private static Chunk await(Future<Chunk> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while pricing orders", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Pricing failed", e.getCause());
+    }
+  }
+}
@@ -1,72 +1,103 @@
 import java.util.List;
 
 public class Cart implements Purchasable {
-  private List<Purchasable> items;
+  private IndexedList<Purchasable> items; // Ordered, with an O(1) membership index; null while shared
+  private List<Purchasable> shared; // An immutable list read in place until the cart is changed
 
   //Constructor
   public Cart(List<Purchasable> items) {
-    this.items = items;
+    this.items = new IndexedList<>(items); // Same contents as the given list, duplicates included
+  }
+
+  private Cart() {
+  }
+
+  // A cart reading the given list in place, in O(1), e.g. a CartService snapshot at checkout. The
+  // list must never change; the cart copies it into its own index only if it is itself changed.
+  static Cart sharing(List<Purchasable> items) {
+    Cart cart = new Cart();
+    cart.shared = items;
+    return cart;
   }
 
   public boolean addItem(Purchasable item) {
-    if(!items.contains(item)) {
-      items.add(item);
-      return true;
-    }
-    return false;
+    return owned().add(item);
   }
 
   public boolean removeItem(Purchasable item) {
-    return items.remove(item);
+    return owned().remove(item);
   }
 
   @Override
-  public double calculatePrice() {
-    double totalPrice = 0;
-    for (Purchasable item : items) {
-      totalPrice += item.calculatePrice();
-    }
-    return totalPrice;
+  public long calculatePriceCents() {
+    return summarize().getPriceCents();
   }
 
   @Override
   public double calculateDuration() {
-    double totalDuration = 0;
-    for (Purchasable item : items) {
-      totalDuration += item.calculateDuration();
-    }
-    return totalDuration;
+    return summarize().getDuration();
+  }
+
+  @Override
+  public PurchaseSummary summarize() {
+    return summarize(false);
+  }
+
+  // Same totals, optionally with the lessons among the items summed on the fork/join pool
+  public PurchaseSummary summarize(boolean parallel) {
+    return SummaryAggregator.sum(getItems(), parallel);
   }
 
   //Getters and Setters
   public void setItems(List<Purchasable> items) {
-    this.items = items;
+    this.items = new IndexedList<>(items);
+    this.shared = null;
   }
 
+  // Read-only view; change the cart through addItem/removeItem/setItems
   public List<Purchasable> getItems() {
-    return items;
+    return shared != null ? shared : items.asList();
+  }
+
+  @Override
+  public PurchaseSummary record(SummaryTape tape) {
+    int slot = tape.reserve();
+    List<Purchasable> itemList = getItems();
+    PurchaseSummary[] parts = new PurchaseSummary[itemList.size()];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = itemList.get(i).record(tape);
+    }
+    PurchaseSummary summary = SummaryAggregator.sum(parts, parts.length);
+    tape.fill(slot, summary);
+    return summary;
   }
 
   @Override
-  public void printDetails(String indent) {
-    System.out.println(indent + "Cart Details:");
-    System.out.printf(indent + "Total Price: $%.2f\n", calculatePrice());
-    System.out.printf(indent + "Total Duration: %.2f hours\n", calculateDuration());
-    
-    for (int i = 1; i <= items.size(); i++) {
-      Purchasable item = items.get(i-1);
-      System.out.println(indent + "Item " + i + ":");
-      item.printDetails("  " + indent);
-      System.out.println(indent + "-------------------");
+  public void render(StringBuilder out, String indent, SummaryTape tape) {
+    PurchaseSummary summary = tape.next();
+    Render.line(out, indent, "Cart Details:");
+    MoneyFormat.appendMoneyCents(out.append(indent).append("Total Price: "), summary.getPriceCents()).append(Render.NL);
+    MoneyFormat.appendHours(out.append(indent).append("Total Duration: "), summary.getDuration()).append(Render.NL);
+
+    List<Purchasable> itemList = getItems();
+    String childIndent = Render.nested(indent);
+    for (int i = 1; i <= itemList.size(); i++) {
+      Render.childHeading(out, indent, "Item", i);
+      itemList.get(i-1).render(out, childIndent, tape);
+      Render.separator(out, indent);
     }
   }
 
   @Override
   public int getModuleCount() {
-    int moduleCount = 0;
-    for (Purchasable item : items) {
-      moduleCount += item.getModuleCount();
+    return summarize().getModuleCount();
+  }
+
+  private IndexedList<Purchasable> owned() {
+    if (shared != null) {
+      items = new IndexedList<>(shared);
+      shared = null;
     }
-    return moduleCount;
+    return items;
   }
 }
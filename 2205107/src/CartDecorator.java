@@ -6,9 +6,29 @@ public abstract class CartDecorator implements Purchasable {
     this.cart = cart;
   }
 
+  // The discounts every checkout applies, innermost first
+  static Purchasable checkoutDiscounts(Purchasable cart, Customer customer) {
+    return new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(
+            new SpecialDiscount(cart),
+            customer));
+  }
+
+  // The discount this layer contributes, or null when it contributes nothing.
+  // DiscountProgram.compile collects these to flatten a whole decorator chain.
+  protected abstract DiscountRule toRule();
+
   @Override
-  public double calculatePrice() {
-    return cart.calculatePrice();
+  public long calculatePriceCents() {
+    return summarize().getPriceCents();
+  }
+
+  // One walk of the wrapped cart; eligibility checks read the same summary as the price
+  @Override
+  public PurchaseSummary summarize() {
+    PurchaseSummary base = cart.summarize();
+    DiscountRule rule = toRule();
+    return rule == null ? base : rule.apply(base);
   }
 
   @Override
@@ -26,8 +46,25 @@ public abstract class CartDecorator implements Purchasable {
   }
 
   @Override
-  public void printDetails(String indent) {
-    cart.printDetails(indent);
+  public PurchaseSummary record(SummaryTape tape) {
+    int slot = tape.reserve();
+    PurchaseSummary base = cart.record(tape);
+    DiscountRule rule = toRule();
+    PurchaseSummary summary = rule == null ? base : rule.apply(base);
+    tape.fill(slot, summary);
+    return summary;
+  }
+
+  @Override
+  public void render(StringBuilder out, String indent, SummaryTape tape) {
+    tape.next(); // This layer's totals are not shown
+    PurchaseSummary base = tape.peek(); // The wrapped cart's totals, recorded right after ours
+    cart.render(out, indent, tape);
+    DiscountRule rule = toRule();
+    if (rule != null && rule.isEligible(base)) {
+      out.append(indent).append(rule.getName()).append(" Applied: -");
+      MoneyFormat.appendMoneyCents(out, rule.getAmountCents()).append(Render.NL).append(Render.NL); // Blank line after each discount
+    }
   }
 
   @Override
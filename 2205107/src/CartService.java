@@ -1,43 +1,239 @@
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReference;
 
+// A shopper's cart, safe to use from several request threads at once. The whole cart is one
+// immutable Snapshot behind an AtomicReference: readers take the current snapshot without locking
+// and always see items, summaries and totals from the same moment; writers build the next snapshot
+// and publish it with compareAndSet, retrying if another writer got there first. A writer never
+// blocks a reader or another writer.
 class CartService {
-  private final List<Purchasable> items = new ArrayList<>();
+  private final AtomicReference<Snapshot> state = new AtomicReference<>(Snapshot.empty(CatalogEpoch.totals()));
+
+  // The cart at one moment: the line items (each item with the summary taken when it was added)
+  // and running totals kept in step with them, so views and checkout never walk the item trees and
+  // removal subtracts exactly what was added. The line items are a RankedList, so adding or
+  // removing any item copies only a few small arrays, and a snapshot held by a checkout stays
+  // valid however the cart changes afterwards.
+  static final class Snapshot {
+    private final RankedList<PriceBreakdown.LineItem> lines;
+    private final PurchaseSummary totals;
+    private final long epoch; // CatalogEpoch.totals() when the summaries were taken
+    private final List<Purchasable> items = new Items();
+
+    private Snapshot(RankedList<PriceBreakdown.LineItem> lines, PurchaseSummary totals, long epoch) {
+      this.lines = lines;
+      this.totals = totals;
+      this.epoch = epoch;
+    }
+
+    private static Snapshot empty(long epoch) {
+      return new Snapshot(RankedList.empty(), PurchaseSummary.EMPTY, epoch);
+    }
+
+    private Snapshot plus(Purchasable item, PurchaseSummary summary) {
+      return new Snapshot(lines.plus(new PriceBreakdown.LineItem(item, summary)), totals.plus(summary), epoch);
+    }
+
+    private Snapshot minus(int index) {
+      Objects.checkIndex(index, lines.size());
+      if (lines.size() == 1) {
+        return empty(epoch);
+      }
+      return new Snapshot(lines.minus(index), totals.minus(lines.get(index).getSummary()), epoch);
+    }
+
+    // Re-reads every item's totals at the given catalog epoch
+    private Snapshot refreshed(long epoch) {
+      RankedList<PriceBreakdown.LineItem> next = RankedList.empty();
+      PurchaseSummary refreshed = PurchaseSummary.EMPTY;
+      for (int i = 0; i < lines.size(); i++) {
+        Purchasable item = lines.get(i).getItem();
+        PurchaseSummary summary = item.summarize();
+        next = next.plus(new PriceBreakdown.LineItem(item, summary));
+        refreshed = refreshed.plus(summary);
+      }
+      return new Snapshot(next, refreshed, epoch);
+    }
+
+    // Read-only view, not a copy
+    List<Purchasable> getItems() {
+      return items;
+    }
+
+    PurchaseSummary getItemSummary(int index) {
+      return lines.get(index).getSummary();
+    }
+
+    PurchaseSummary getTotals() {
+      return totals;
+    }
+
+    // Read-only view, not a copy
+    List<PriceBreakdown.LineItem> getLineItems() {
+      return lines.asList();
+    }
+
+    int size() {
+      return lines.size();
+    }
+
+    boolean isEmpty() {
+      return lines.isEmpty();
+    }
+
+    // A cart over this snapshot's items, sharing them rather than copying
+    Cart toCart() {
+      return Cart.sharing(items);
+    }
+
+    private final class Items extends AbstractList<Purchasable> implements RandomAccess {
+      @Override
+      public Purchasable get(int index) {
+        return lines.get(index).getItem();
+      }
+
+      @Override
+      public int size() {
+        return lines.size();
+      }
+    }
+  }
+
+  // The current contents, with totals re-read if the catalog has changed since they were taken
+  Snapshot snapshot() {
+    Snapshot current = state.get();
+    long epoch;
+    while (current.epoch != (epoch = CatalogEpoch.totals())) {
+      Snapshot refreshed = current.refreshed(epoch);
+      if (state.compareAndSet(current, refreshed)) {
+        return refreshed;
+      }
+      current = state.get();
+    }
+    return current;
+  }
 
   void addItem(Purchasable item) {
-    items.add(item);
+    long summaryEpoch = CatalogEpoch.totals();
+    PurchaseSummary summary = item.summarize(); // Outside the retry loop, as it may walk a large tree
+    while (true) {
+      Snapshot current = snapshot();
+      if (current.epoch != summaryEpoch) {
+        summaryEpoch = current.epoch;
+        summary = item.summarize(); // The catalog changed while this item was summarized
+        continue;
+      }
+      if (state.compareAndSet(current, current.plus(item, summary))) {
+        return;
+      }
+    }
   }
 
-  boolean isEmpty() {
-    return items.isEmpty();
+  // Adds all the items in one step, or none and returns false if the cart would then hold more
+  // than maxItems. Concurrent adds can't push the cart past the limit between check and publish.
+  boolean addItems(List<? extends Purchasable> items, int maxItems) {
+    long summaryEpoch = CatalogEpoch.totals();
+    PurchaseSummary[] summaries = summarize(items);
+    while (true) {
+      Snapshot current = snapshot();
+      if (current.size() + items.size() > maxItems) {
+        return false;
+      }
+      if (current.epoch != summaryEpoch) {
+        summaryEpoch = current.epoch;
+        summaries = summarize(items);
+        continue;
+      }
+      Snapshot next = current;
+      for (int i = 0; i < summaries.length; i++) {
+        next = next.plus(items.get(i), summaries[i]);
+      }
+      if (state.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+
+  private static PurchaseSummary[] summarize(List<? extends Purchasable> items) {
+    PurchaseSummary[] summaries = new PurchaseSummary[items.size()];
+    for (int i = 0; i < summaries.length; i++) {
+      summaries[i] = items.get(i).summarize();
+    }
+    return summaries;
+  }
+
+  void removeAt(int index) {
+    while (true) {
+      Snapshot current = snapshot();
+      if (state.compareAndSet(current, current.minus(index))) {
+        return;
+      }
+    }
   }
 
   void clear() {
-    items.clear();
+    state.set(Snapshot.empty(CatalogEpoch.totals()));
   }
 
-  int size() {
-    return items.size();
+  // Empties the cart and returns what it held, e.g. for checkout. Items added concurrently land
+  // either in the returned snapshot or in the emptied cart, never in both or neither.
+  Snapshot drain() {
+    while (true) {
+      Snapshot current = snapshot();
+      if (state.compareAndSet(current, Snapshot.empty(current.epoch))) {
+        return current;
+      }
+    }
   }
 
-  void removeAt(int index) {
-    items.remove(index);
+  boolean isEmpty() {
+    return state.get().isEmpty();
+  }
+
+  int size() {
+    return state.get().size();
   }
 
   List<Purchasable> getItems() {
-    return Collections.unmodifiableList(items);
+    return state.get().getItems();
+  }
+
+  PurchaseSummary getItemSummary(int index) {
+    return snapshot().getItemSummary(index);
+  }
+
+  PurchaseSummary getTotals() {
+    return snapshot().getTotals();
+  }
+
+  List<PriceBreakdown.LineItem> getLineItems() {
+    return snapshot().getLineItems();
+  }
+
+  long calculateSubtotalCents() {
+    return getTotals().getPriceCents();
   }
 
   double calculateSubtotal() {
-    double total = 0;
-    for (Purchasable item : items) {
-      total += item.calculatePrice();
+    return getTotals().getPrice();
+  }
+
+  // Invalidation hook: re-reads every item's totals. Called automatically when the catalog
+  // epoch has moved since the totals were taken, and available to callers that change prices
+  // outside the catalog classes.
+  void refreshTotals() {
+    while (true) {
+      Snapshot current = state.get();
+      if (state.compareAndSet(current, current.refreshed(CatalogEpoch.totals()))) {
+        return;
+      }
     }
-    return total;
   }
 
   Cart toCart() {
-    return new Cart(items);
+    return state.get().toCart();
   }
 }
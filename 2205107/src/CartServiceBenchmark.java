@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Throughput of CartService against a cart that guards plain lists with synchronized methods, with
+// several threads sharing one cart. Each operation is a quote (reading the line items and totals,
+// as a request does) nine times in ten, otherwise an add or a remove, so the cart size stays steady.
+// Run with: java CartServiceBenchmark [operations per thread]
+public class CartServiceBenchmark {
+  private static final int DEFAULT_OPERATIONS = 500_000;
+  private static final int INITIAL_ITEMS = 20;
+  private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+  private static final int ROUNDS = 3;
+
+  // The operations the workload needs, implemented by both carts
+  private interface SharedCart {
+    void add(Purchasable item);
+
+    void removeFirst();
+
+    long quote();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int operations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPERATIONS;
+    Lesson lesson = new Lesson("Benchmark", 12.5, 2.0);
+
+    System.out.println("=".repeat(80));
+    System.out.println("SHARED CART THROUGHPUT: CartService VS synchronized ("
+        + Runtime.getRuntime().availableProcessors() + " CPUs)");
+    System.out.println("=".repeat(80));
+    for (int threads : THREAD_COUNTS) {
+      double lockFree = best(threads, operations, lesson, LockFreeCart::new);
+      double locked = best(threads, operations, lesson, SynchronizedCart::new);
+      System.out.println(String.format("%d threads: CartService %8.2f Mops/s   synchronized %8.2f Mops/s   %5.2fx",
+          threads, lockFree / 1e6, locked / 1e6, lockFree / locked));
+    }
+  }
+
+  // Best of ROUNDS, in operations per second
+  private static double best(int threads, int operations, Lesson lesson, Supplier<SharedCart> carts)
+      throws InterruptedException {
+    double best = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      SharedCart cart = carts.get();
+      for (int i = 0; i < INITIAL_ITEMS; i++) {
+        cart.add(lesson);
+      }
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> workers = new ArrayList<>();
+      long[] sink = new long[threads];
+      for (int t = 0; t < threads; t++) {
+        int slot = t;
+        Thread worker = new Thread(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          long sum = 0;
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < operations; i++) {
+            int choice = random.nextInt(20);
+            if (choice == 0) {
+              cart.add(lesson);
+            } else if (choice == 1) {
+              cart.removeFirst();
+            } else {
+              sum += cart.quote();
+            }
+          }
+          sink[slot] = sum;
+        });
+        workers.add(worker);
+        worker.start();
+      }
+      long began = System.nanoTime();
+      start.countDown();
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      double rate = (double) threads * operations / ((System.nanoTime() - began) / 1e9);
+      best = Math.max(best, rate);
+    }
+    return best;
+  }
+
+  private static final class LockFreeCart implements SharedCart {
+    private final CartService cart = new CartService();
+
+    @Override
+    public void add(Purchasable item) {
+      cart.addItem(item);
+    }
+
+    @Override
+    public void removeFirst() {
+      try {
+        cart.removeAt(0);
+      } catch (IndexOutOfBoundsException e) {
+        // Empty
+      }
+    }
+
+    @Override
+    public long quote() {
+      CartService.Snapshot snapshot = cart.snapshot();
+      return snapshot.getTotals().getPriceCents() + snapshot.size();
+    }
+  }
+
+  // The previous CartService with every method synchronized
+  private static final class SynchronizedCart implements SharedCart {
+    private final List<Purchasable> items = new ArrayList<>();
+    private final List<PurchaseSummary> itemSummaries = new ArrayList<>();
+    private PurchaseSummary totals = PurchaseSummary.EMPTY;
+
+    @Override
+    public synchronized void add(Purchasable item) {
+      PurchaseSummary summary = item.summarize();
+      items.add(item);
+      itemSummaries.add(summary);
+      totals = totals.plus(summary);
+    }
+
+    @Override
+    public synchronized void removeFirst() {
+      if (!items.isEmpty()) {
+        items.remove(0);
+        totals = totals.minus(itemSummaries.remove(0));
+      }
+    }
+
+    @Override
+    public synchronized long quote() {
+      return totals.getPriceCents() + items.size();
+    }
+  }
+}
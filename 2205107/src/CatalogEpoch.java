@@ -0,0 +1,33 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Global change counters for the catalog, so anything holding totals or text derived from catalog
+// items can tell whether they are stale with a single comparison. current() advances on every
+// title, price or structure change to a Lesson, Course or Module, for rendered text; totals()
+// advances only on price and structure changes, so a title edit doesn't make carts re-read every
+// line's totals.
+final class CatalogEpoch {
+  private static final AtomicLong EPOCH = new AtomicLong();
+  private static final AtomicLong TOTALS = new AtomicLong();
+
+  private CatalogEpoch() {
+  }
+
+  static long current() {
+    return EPOCH.get();
+  }
+
+  static long totals() {
+    return TOTALS.get();
+  }
+
+  // A price or structure change
+  static long advance() {
+    TOTALS.incrementAndGet();
+    return EPOCH.incrementAndGet();
+  }
+
+  // A change that only shows in rendered text, such as a title
+  static long advanceText() {
+    return EPOCH.incrementAndGet();
+  }
+}
@@ -0,0 +1,17 @@
+import java.io.IOException;
+
+// A catalog or order file line that could not be parsed or is out of place
+class CatalogFormatException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  private final int lineNumber;
+
+  CatalogFormatException(int lineNumber, String message) {
+    super("Line " + lineNumber + ": " + message);
+    this.lineNumber = lineNumber;
+  }
+
+  int getLineNumber() {
+    return lineNumber;
+  }
+}
@@ -0,0 +1,253 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streams a catalog export one record at a time, so memory use is bounded by the catalog being
+// built rather than by the file. The format is CSV with one record per line:
+//
+//   module,<title>
+//   course,<title>
+//   lesson,<title>,<price per hour>,<duration in hours>
+//
+// Courses belong to the module above them and lessons to the course above them. Fields may be
+// quoted ("Design, Patterns" or "Say ""hi"""), blank lines and lines starting with # are skipped.
+// Each record is validated as it is read and errors report the offending line.
+final class CatalogLoader {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private CatalogLoader() {
+  }
+
+  static List<Module> load(Path path) throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return load(reader);
+    }
+  }
+
+  static List<Module> load(Reader reader) throws IOException {
+    return load(reader, new TitleDictionary());
+  }
+
+  // Equal titles share one String from titles, whose report shows the heap saved
+  static List<Module> load(Reader reader, TitleDictionary titles) throws IOException {
+    ObjectGraphSink sink = new ObjectGraphSink(titles);
+    read(reader, sink);
+    return sink.finish();
+  }
+
+  // Loads straight into native memory without building Module/Course/Lesson objects
+  static OffHeapCatalogStore loadOffHeap(Path path) throws IOException {
+    OffHeapCatalogStore.Builder builder = new OffHeapCatalogStore.Builder();
+    try {
+      read(path, builder);
+    } catch (IOException | RuntimeException e) {
+      builder.abort();
+      throw e;
+    }
+    return builder.build();
+  }
+
+  static void read(Path path, CatalogSink sink) throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      read(reader, sink);
+    }
+  }
+
+  // Builds the object graph from a store, e.g. a mapped CatalogSnapshot
+  static List<Module> load(OffHeapCatalogStore store) {
+    ObjectGraphSink sink = new ObjectGraphSink(new TitleDictionary());
+    read(store, sink);
+    return sink.finish();
+  }
+
+  static void read(OffHeapCatalogStore store, CatalogSink sink) {
+    for (OffHeapCatalogStore.ModuleRecord module : store.modules()) {
+      sink.startModule(module.getTitle());
+      for (OffHeapCatalogStore.CourseRecord course : module.getCourses()) {
+        sink.startCourse(course.getTitle());
+        for (OffHeapCatalogStore.LessonRecord lesson : course.getLessons()) {
+          sink.addLesson(lesson.getTitle(), lesson.getPricePerHour(), lesson.calculateDuration());
+        }
+      }
+    }
+  }
+
+  static void read(Reader source, CatalogSink sink) throws IOException {
+    BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source, BUFFER_SIZE);
+    List<String> fields = new ArrayList<>(4); // Reused for every line
+    boolean inModule = false;
+    boolean inCourse = false;
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+        line = line.substring(1); // Byte order mark written by some spreadsheet exports
+      }
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      split(line, lineNumber, fields);
+      String type = fields.get(0).trim();
+      switch (type) {
+        case "module" -> {
+          expectFields(fields, 2, lineNumber);
+          sink.startModule(title(fields, lineNumber));
+          inModule = true;
+          inCourse = false;
+        }
+        case "course" -> {
+          expectFields(fields, 2, lineNumber);
+          if (!inModule) {
+            throw new CatalogFormatException(lineNumber, "course appears before any module");
+          }
+          sink.startCourse(title(fields, lineNumber));
+          inCourse = true;
+        }
+        case "lesson" -> {
+          expectFields(fields, 4, lineNumber);
+          if (!inCourse) {
+            throw new CatalogFormatException(lineNumber, "lesson appears before any course in this module");
+          }
+          String title = title(fields, lineNumber);
+          double pricePerHour = number(fields.get(2), "price per hour", lineNumber);
+          double duration = number(fields.get(3), "duration", lineNumber);
+          sink.addLesson(title, pricePerHour, duration);
+        }
+        default -> throw new CatalogFormatException(lineNumber, "unknown record type \"" + type + "\"");
+      }
+    }
+  }
+
+  // Splits one CSV line into fields, handling quotes and doubled quotes. Also used for order files.
+  static void split(String line, int lineNumber, List<String> fields) throws CatalogFormatException {
+    fields.clear();
+    StringBuilder field = new StringBuilder();
+    int i = 0;
+    int length = line.length();
+    while (true) {
+      if (i < length && line.charAt(i) == '"') {
+        i++;
+        while (true) {
+          if (i >= length) {
+            throw new CatalogFormatException(lineNumber, "unterminated quoted field");
+          }
+          char c = line.charAt(i++);
+          if (c == '"') {
+            if (i < length && line.charAt(i) == '"') {
+              field.append('"');
+              i++;
+            } else {
+              break;
+            }
+          } else {
+            field.append(c);
+          }
+        }
+        if (i < length && line.charAt(i) != ',') {
+          throw new CatalogFormatException(lineNumber, "unexpected text after quoted field");
+        }
+      } else {
+        int end = line.indexOf(',', i);
+        if (end < 0) {
+          end = length;
+        }
+        field.append(line, i, end);
+        i = end;
+      }
+      fields.add(field.toString());
+      field.setLength(0);
+      if (i >= length) {
+        return;
+      }
+      i++; // Skip the comma
+    }
+  }
+
+  private static void expectFields(List<String> fields, int expected, int lineNumber) throws CatalogFormatException {
+    if (fields.size() != expected) {
+      throw new CatalogFormatException(lineNumber,
+          fields.get(0).trim() + " records have " + expected + " fields, found " + fields.size());
+    }
+  }
+
+  private static String title(List<String> fields, int lineNumber) throws CatalogFormatException {
+    String title = fields.get(1).trim();
+    if (title.isEmpty()) {
+      throw new CatalogFormatException(lineNumber, "title is empty");
+    }
+    return title;
+  }
+
+  private static double number(String field, String name, int lineNumber) throws CatalogFormatException {
+    double value;
+    try {
+      value = Double.parseDouble(field.trim());
+    } catch (NumberFormatException e) {
+      throw new CatalogFormatException(lineNumber, name + " \"" + field.trim() + "\" is not a number");
+    }
+    if (!Double.isFinite(value) || value < 0) {
+      throw new CatalogFormatException(lineNumber, name + " must be a non-negative number");
+    }
+    return value;
+  }
+
+  // Builds each course and module once its children are known, so lessons are attached in one
+  // pass instead of invalidating cached totals and advancing the catalog epoch per lesson.
+  private static final class ObjectGraphSink implements CatalogSink {
+    private final TitleDictionary titles;
+    private final List<Module> modules = new ArrayList<>();
+    private String moduleTitle;
+    private String courseTitle;
+    private final ArrayList<Course> courses = new ArrayList<>();
+    private final ArrayList<Lesson> lessons = new ArrayList<>();
+
+    ObjectGraphSink(TitleDictionary titles) {
+      this.titles = titles;
+    }
+
+    @Override
+    public void startModule(String title) {
+      closeModule();
+      moduleTitle = titles.intern(title);
+    }
+
+    @Override
+    public void startCourse(String title) {
+      closeCourse();
+      courseTitle = titles.intern(title);
+    }
+
+    @Override
+    public void addLesson(String title, double pricePerHour, double duration) {
+      lessons.add(new Lesson(titles.intern(title), pricePerHour, duration));
+    }
+
+    List<Module> finish() {
+      closeModule();
+      return modules;
+    }
+
+    private void closeCourse() {
+      if (courseTitle != null) {
+        courses.add(new Course(courseTitle, lessons));
+        lessons.clear();
+        courseTitle = null;
+      }
+    }
+
+    private void closeModule() {
+      closeCourse();
+      if (moduleTitle != null) {
+        modules.add(new Module(moduleTitle, courses));
+        courses.clear();
+        moduleTitle = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Dense int IDs for every catalog node, assigned at load time in depth-first order (module,
+// then its courses, then each course's lessons). Because the IDs are dense, the ID->node and
+// ID->parent tables are plain arrays: the collision-free case of an open-addressing table, with
+// no hashing or boxing. Carts and orders can hold these ints instead of object references.
+final class CatalogRegistry {
+  static final int NO_ID = -1;
+
+  private Purchasable[] nodes = new Purchasable[64];
+  private int[] parentIds = new int[64];
+  private int size;
+
+  static CatalogRegistry index(List<Module> modules) {
+    CatalogRegistry registry = new CatalogRegistry();
+    for (Module module : modules) {
+      int moduleId = registry.register(module, NO_ID);
+      for (Course course : module.getCourses()) {
+        int courseId = registry.register(course, moduleId);
+        for (Lesson lesson : course.getLessons()) {
+          registry.register(lesson, courseId);
+        }
+      }
+    }
+    return registry;
+  }
+
+  // Assigns the next ID, or returns the existing one if the node is already registered here.
+  // Shared nodes keep the parent they were first registered under.
+  int register(Purchasable node, int parentId) {
+    int existing = idOf(node);
+    if (existing != NO_ID && existing < size && nodes[existing] == node) {
+      return existing;
+    }
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, size * 2);
+      parentIds = Arrays.copyOf(parentIds, size * 2);
+    }
+    int id = size++;
+    nodes[id] = node;
+    parentIds[id] = parentId;
+    assignId(node, id);
+    return id;
+  }
+
+  Purchasable get(int id) {
+    checkId(id);
+    return nodes[id];
+  }
+
+  Lesson getLesson(int id) {
+    return as(Lesson.class, id);
+  }
+
+  Course getCourse(int id) {
+    return as(Course.class, id);
+  }
+
+  Module getModule(int id) {
+    return as(Module.class, id);
+  }
+
+  int getParentId(int id) {
+    checkId(id);
+    return parentIds[id];
+  }
+
+  int size() {
+    return size;
+  }
+
+  static int idOf(Purchasable node) {
+    if (node instanceof Lesson lesson) {
+      return lesson.getCatalogId();
+    }
+    if (node instanceof Course course) {
+      return course.getCatalogId();
+    }
+    if (node instanceof Module module) {
+      return module.getCatalogId();
+    }
+    return NO_ID;
+  }
+
+  private static void assignId(Purchasable node, int id) {
+    if (node instanceof Lesson lesson) {
+      lesson.setCatalogId(id);
+    } else if (node instanceof Course course) {
+      course.setCatalogId(id);
+    } else if (node instanceof Module module) {
+      module.setCatalogId(id);
+    } else {
+      throw new IllegalArgumentException("Not a catalog node: " + node);
+    }
+  }
+
+  private <T extends Purchasable> T as(Class<T> type, int id) {
+    Purchasable node = get(id);
+    if (!type.isInstance(node)) {
+      throw new IllegalArgumentException("Catalog ID " + id + " is not a " + type.getSimpleName());
+    }
+    return type.cast(node);
+  }
+
+  private void checkId(int id) {
+    if (id < 0 || id >= size) {
+      throw new IllegalArgumentException("Unknown catalog ID: " + id);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+// Receives catalog records in file order: a module, then its courses, each followed by its lessons.
+// Implemented by the object-graph builder in CatalogLoader and by OffHeapCatalogStore.Builder.
+interface CatalogSink {
+  void startModule(String title);
+
+  void startCourse(String title);
+
+  void addLesson(String title, double pricePerHour, double duration);
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Binary catalog snapshot: the OffHeapCatalogStore segments written back to back behind a small
+// header. Opening one maps the file and checks the header; records and titles are decoded only
+// when read, so startup cost does not depend on catalog size.
+//
+// Header (64 bytes, little-endian):
+//   long magic, int version, int byteOrder (0 = little-endian, 1 = big-endian records),
+//   int moduleCount, int courseCount, int lessonCount, int reserved, long titleBytes, 24 reserved bytes
+// followed by the module, course and lesson records and then the title arena.
+final class CatalogSnapshot {
+  static final long MAGIC = 0x5441434e5241454cL; // "LEARNCAT" read little-endian
+  static final int VERSION = 2; // 2: prices stored as long cents
+  static final int HEADER_BYTES = 64;
+
+  private static final int LITTLE_ENDIAN = 0;
+  private static final int BIG_ENDIAN = 1;
+
+  private CatalogSnapshot() {
+  }
+
+  static void write(OffHeapCatalogStore store, Path path) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    header.putLong(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : BIG_ENDIAN);
+    header.putInt(store.moduleCount());
+    header.putInt(store.courseCount());
+    header.putInt(store.lessonCount());
+    header.putInt(0);
+    header.putLong(store.titlesSegment().byteSize());
+    header.clear();
+
+    // Write to a sibling file and move it into place so readers never map a half-written snapshot
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(channel, header);
+      writeFully(channel, store.modulesSegment().asByteBuffer());
+      writeFully(channel, store.coursesSegment().asByteBuffer());
+      writeFully(channel, store.lessonsSegment().asByteBuffer());
+      writeFully(channel, store.titlesSegment().asByteBuffer());
+      channel.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // Maps a snapshot read-only. Closing the returned store unmaps the file.
+  static OffHeapCatalogStore open(Path path) throws IOException {
+    Arena arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES) {
+        throw new IOException(path + " is too short to be a catalog snapshot");
+      }
+      MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+      ValueLayout.OfLong longLayout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+      ValueLayout.OfInt intLayout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+      if (file.get(longLayout, 0) != MAGIC) {
+        throw new IOException(path + " is not a catalog snapshot");
+      }
+      int version = file.get(intLayout, 8);
+      if (version != VERSION) {
+        throw new IOException(path + " has snapshot version " + version + ", expected " + VERSION);
+      }
+      int nativeOrder = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : BIG_ENDIAN;
+      if (file.get(intLayout, 12) != nativeOrder) {
+        throw new IOException(path + " was written on a machine with a different byte order");
+      }
+      int modules = file.get(intLayout, 16);
+      int courses = file.get(intLayout, 20);
+      int lessons = file.get(intLayout, 24);
+      long titleBytes = file.get(longLayout, 32);
+      if (modules < 0 || courses < 0 || lessons < 0 || titleBytes < 0) {
+        throw new IOException(path + " has a corrupt header");
+      }
+
+      long moduleStart = HEADER_BYTES;
+      long courseStart = moduleStart + modules * OffHeapCatalogStore.GROUP_BYTES;
+      long lessonStart = courseStart + courses * OffHeapCatalogStore.GROUP_BYTES;
+      long titleStart = lessonStart + lessons * OffHeapCatalogStore.LESSON_BYTES;
+      if (titleStart + titleBytes != size) {
+        throw new IOException(path + " is truncated or has trailing data");
+      }
+      return new OffHeapCatalogStore(arena,
+          file.asSlice(moduleStart, courseStart - moduleStart),
+          file.asSlice(courseStart, lessonStart - courseStart),
+          file.asSlice(lessonStart, titleStart - lessonStart),
+          file.asSlice(titleStart, titleBytes));
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  static boolean isSnapshot(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      byte[] magic = in.readNBytes(8);
+      return magic.length == 8
+          && ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getLong() == MAGIC;
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Versioned catalog for concurrent readers and live price changes. A Version is never changed
+// once published: readers pin current() for as long as they need a consistent catalog, e.g. a
+// whole quote, and never lock. Writers never touch a published node. Instead they build the next
+// version by path copying: the changed lesson, every course and module above it and the slots of
+// the ID table and module list that point at them are copied, and everything else is shared with
+// the previous version. The new version is published with a single reference swap.
+//
+// Writers take writeLock, as copying a node re-links the parent lists of the children it shares.
+// Readers never take it. Nodes handed to this class belong to it and must not be changed in place.
+final class CatalogVersions {
+  private final AtomicReference<Version> current;
+  private final Object writeLock = new Object();
+
+  // One catalog as of one change: the modules, and every node by its catalog ID
+  static final class Version {
+    private final long number;
+    private final PersistentList<Module> modules;
+    private final PersistentList<Purchasable> nodes; // Removed nodes leave a null
+
+    private Version(long number, PersistentList<Module> modules, PersistentList<Purchasable> nodes) {
+      this.number = number;
+      this.modules = modules;
+      this.nodes = nodes;
+    }
+
+    long getNumber() {
+      return number;
+    }
+
+    List<Module> getModules() {
+      return modules.asList();
+    }
+
+    Purchasable get(int id) {
+      Purchasable node = id >= 0 && id < nodes.size() ? nodes.get(id) : null;
+      if (node == null) {
+        throw new IllegalArgumentException("Unknown catalog ID: " + id);
+      }
+      return node;
+    }
+
+    Lesson getLesson(int id) {
+      return as(Lesson.class, id);
+    }
+
+    Course getCourse(int id) {
+      return as(Course.class, id);
+    }
+
+    private <T extends Purchasable> T as(Class<T> type, int id) {
+      Purchasable node = get(id);
+      if (!type.isInstance(node)) {
+        throw new IllegalArgumentException("Catalog ID " + id + " is not a " + type.getSimpleName());
+      }
+      return type.cast(node);
+    }
+  }
+
+  // Version 1 holds the given modules, with IDs assigned as CatalogRegistry does
+  CatalogVersions(List<Module> catalog) {
+    CatalogRegistry registry = CatalogRegistry.index(catalog);
+    PersistentList<Purchasable> nodes = PersistentList.empty();
+    for (int id = 0; id < registry.size(); id++) {
+      nodes = nodes.plus(registry.get(id));
+    }
+    PersistentList<Module> modules = PersistentList.empty();
+    for (Module module : catalog) {
+      module.summarize(); // Totals are cached before any reader sees them
+      modules = modules.plus(module);
+    }
+    this.current = new AtomicReference<>(new Version(1, modules, nodes));
+  }
+
+  // The latest version; pin it for the length of one read
+  Version current() {
+    return current.get();
+  }
+
+  // Publishes a version where the lesson has a new rate and duration
+  Version repriceLesson(int lessonId, double pricePerHour, double duration) {
+    return updateLesson(lessonId, lesson -> new Lesson(lesson.getTitle(), pricePerHour, duration));
+  }
+
+  // Publishes a version where the lesson is replaced by change applied to it. The lesson is read
+  // from the version being replaced, under writeLock, so change never sees a stale lesson and a
+  // lesson removed meanwhile is reported as unknown. change returns a new Lesson and leaves the
+  // one it is given alone.
+  Version updateLesson(int lessonId, UnaryOperator<Lesson> change) {
+    synchronized (writeLock) {
+      Version base = current.get();
+      Lesson lesson = base.getLesson(lessonId);
+      Draft draft = new Draft(base);
+      draft.replace(lesson, change.apply(lesson));
+      return publish(draft);
+    }
+  }
+
+  // Publishes a version where the course also holds the lesson, under a new catalog ID
+  Version addLesson(int courseId, Lesson lesson) {
+    synchronized (writeLock) {
+      Version base = current.get();
+      Course course = base.getCourse(courseId);
+      Draft draft = new Draft(base);
+      lesson.setCatalogId(draft.nodes.size());
+      draft.nodes = draft.nodes.plus(lesson);
+      List<Lesson> lessons = new ArrayList<>(course.getLessons());
+      lessons.add(lesson);
+      draft.replace(course, copy(course, lessons));
+      return publish(draft);
+    }
+  }
+
+  // Publishes a version without the lesson, removed from every course that held it
+  Version removeLesson(int lessonId) {
+    synchronized (writeLock) {
+      Version base = current.get();
+      Lesson lesson = base.getLesson(lessonId);
+      Draft draft = new Draft(base);
+      for (Course course : distinct(lesson.getParents())) {
+        List<Lesson> lessons = new ArrayList<>(course.getLessons());
+        lessons.removeIf(held -> held == lesson);
+        draft.replace(course, copy(course, lessons));
+      }
+      draft.nodes = draft.nodes.with(lessonId, null);
+      return publish(draft);
+    }
+  }
+
+  private Version publish(Draft draft) {
+    Version next = new Version(draft.base.number + 1, draft.modules, draft.nodes);
+    current.set(next);
+    return next;
+  }
+
+  // The next version while it is being built
+  private static final class Draft {
+    private final Version base;
+    private PersistentList<Module> modules;
+    private PersistentList<Purchasable> nodes;
+
+    private Draft(Version base) {
+      this.base = base;
+      this.modules = base.modules;
+      this.nodes = base.nodes;
+    }
+
+    // Puts replacement in place of lesson under the same ID, copying every course holding it
+    private void replace(Lesson lesson, Lesson replacement) {
+      replacement.setCatalogId(lesson.getCatalogId());
+      nodes = nodes.with(lesson.getCatalogId(), replacement);
+      for (Course course : distinct(lesson.getParents())) {
+        List<Lesson> lessons = new ArrayList<>(course.getLessons());
+        lessons.replaceAll(held -> held == lesson ? replacement : held);
+        replace(course, copy(course, lessons));
+      }
+    }
+
+    // Puts replacement in place of course under the same ID, copying every module holding it
+    private void replace(Course course, Course replacement) {
+      replacement.setCatalogId(course.getCatalogId());
+      replacement.summarize();
+      nodes = nodes.with(course.getCatalogId(), replacement);
+      for (Module module : distinct(course.getParents())) {
+        List<Course> courses = new ArrayList<>(module.getCourses());
+        courses.replaceAll(held -> held == course ? replacement : held);
+        Module moduleCopy = new Module(module.getTitle(), new ArrayList<>(courses));
+        for (Course held : module.getCourses()) {
+          held.detachFrom(module); // The old module is frozen and no longer needs updates
+        }
+        replace(module, moduleCopy);
+      }
+    }
+
+    private void replace(Module module, Module replacement) {
+      replacement.setCatalogId(module.getCatalogId());
+      replacement.summarize();
+      nodes = nodes.with(module.getCatalogId(), replacement);
+      for (int i = 0; i < modules.size(); i++) {
+        if (modules.get(i) == module) {
+          modules = modules.with(i, replacement);
+        }
+      }
+    }
+  }
+
+  private static Course copy(Course course, List<Lesson> lessons) {
+    Course copy = new Course(course.getTitle(), new ArrayList<>(lessons));
+    for (Lesson held : course.getLessons()) {
+      held.detachFrom(course); // The old course is frozen and no longer needs updates
+    }
+    return copy;
+  }
+
+  // Parent lists hold a parent once per occurrence of the child
+  private static <T> Set<T> distinct(List<T> parents) {
+    Set<T> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(parents);
+    return distinct;
+  }
+}
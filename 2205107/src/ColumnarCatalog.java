@@ -0,0 +1,390 @@
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Read-optimized copy of a catalog laid out as parallel primitive arrays in depth-first order.
+// Lessons of a course are contiguous, as are courses of a module, so offset arrays describe
+// every course and module as an index range. Course and module totals are range sums computed
+// once at build time with the same pairwise order as SummaryAggregator, so they match the
+// object model bit for bit and are read back in O(1). Prices are exact cents, as in Money.
+// Lightweight views expose every row as a Purchasable, so columnar items can go into carts, take
+// add-ons and be checked out.
+final class ColumnarCatalog {
+  // Per lesson, in depth-first order
+  private final String[] lessonTitles;
+  private final long[] rateCents; // Price per hour
+  private final double[] duration;
+  private final int[] courseIndex;
+  private final int[] moduleIndex;
+
+  // Per course: lessons are [courseLessonStart[c], courseLessonStart[c + 1])
+  private final String[] courseTitles;
+  private final int[] courseLessonStart;
+  private final long[] coursePriceCents;
+  private final double[] courseDuration;
+
+  // Per module: courses are [moduleCourseStart[m], moduleCourseStart[m + 1])
+  private final String[] moduleTitles;
+  private final int[] moduleCourseStart;
+  private final long[] modulePriceCents;
+  private final double[] moduleDuration;
+
+  private ColumnarCatalog(int modules, int courses, int lessons) {
+    lessonTitles = new String[lessons];
+    rateCents = new long[lessons];
+    duration = new double[lessons];
+    courseIndex = new int[lessons];
+    moduleIndex = new int[lessons];
+    courseTitles = new String[courses];
+    courseLessonStart = new int[courses + 1];
+    coursePriceCents = new long[courses];
+    courseDuration = new double[courses];
+    moduleTitles = new String[modules];
+    moduleCourseStart = new int[modules + 1];
+    modulePriceCents = new long[modules];
+    moduleDuration = new double[modules];
+  }
+
+  static ColumnarCatalog from(List<Module> modules) {
+    int courseTotal = 0;
+    int lessonTotal = 0;
+    for (Module module : modules) {
+      for (Course course : module.getCourses()) {
+        courseTotal++;
+        lessonTotal += course.getLessons().size();
+      }
+    }
+
+    ColumnarCatalog catalog = new ColumnarCatalog(modules.size(), courseTotal, lessonTotal);
+    int c = 0;
+    int l = 0;
+    for (int m = 0; m < modules.size(); m++) {
+      Module module = modules.get(m);
+      catalog.moduleTitles[m] = module.getTitle();
+      catalog.moduleCourseStart[m] = c;
+      for (Course course : module.getCourses()) {
+        catalog.courseTitles[c] = course.getTitle();
+        catalog.courseLessonStart[c] = l;
+        for (Lesson lesson : course.getLessons()) {
+          catalog.lessonTitles[l] = lesson.getTitle();
+          catalog.rateCents[l] = lesson.getPricePerHourCents();
+          catalog.duration[l] = lesson.calculateDuration();
+          catalog.courseIndex[l] = c;
+          catalog.moduleIndex[l] = m;
+          l++;
+        }
+        c++;
+      }
+    }
+    catalog.moduleCourseStart[modules.size()] = c;
+    catalog.courseLessonStart[c] = l;
+    catalog.computeTotals();
+    return catalog;
+  }
+
+  private void computeTotals() {
+    long[] lessonPriceCents = new long[rateCents.length];
+    for (int l = 0; l < lessonPriceCents.length; l++) {
+      lessonPriceCents[l] = Money.lessonPrice(rateCents[l], duration[l]);
+    }
+    for (int c = 0; c < courseTitles.length; c++) {
+      coursePriceCents[c] = sum(lessonPriceCents, courseLessonStart[c], courseLessonStart[c + 1]);
+      courseDuration[c] = rangeSum(duration, courseLessonStart[c], courseLessonStart[c + 1]);
+    }
+    for (int m = 0; m < moduleTitles.length; m++) {
+      modulePriceCents[m] = sum(coursePriceCents, moduleCourseStart[m], moduleCourseStart[m + 1]);
+      moduleDuration[m] = rangeSum(courseDuration, moduleCourseStart[m], moduleCourseStart[m + 1]);
+    }
+  }
+
+  // Integer sums are exact, so cents need no particular order
+  private static long sum(long[] values, int from, int to) {
+    long sum = 0;
+    for (int i = from; i < to; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  // Same reduction tree as SummaryAggregator: pairwise halves down to LEAF_SIZE, loops below
+  private static double rangeSum(double[] values, int from, int to) {
+    if (to - from <= SummaryAggregator.LEAF_SIZE) {
+      double sum = 0;
+      for (int i = from; i < to; i++) {
+        sum += values[i];
+      }
+      return sum;
+    }
+    int mid = (from + to) >>> 1;
+    return rangeSum(values, from, mid) + rangeSum(values, mid, to);
+  }
+
+  int moduleCount() {
+    return moduleTitles.length;
+  }
+
+  int courseCount() {
+    return courseTitles.length;
+  }
+
+  int lessonCount() {
+    return lessonTitles.length;
+  }
+
+  int getCourseIndex(int lesson) {
+    return courseIndex[lesson];
+  }
+
+  int getModuleIndex(int lesson) {
+    return moduleIndex[lesson];
+  }
+
+  ModuleView module(int m) {
+    return new ModuleView(m);
+  }
+
+  CourseView course(int c) {
+    return new CourseView(c);
+  }
+
+  LessonView lesson(int l) {
+    return new LessonView(l);
+  }
+
+  List<ModuleView> modules() {
+    return new RangeList<>(0, moduleTitles.length) {
+      @Override
+      public ModuleView get(int i) {
+        return module(i);
+      }
+    };
+  }
+
+  // Read-only list of views over an index range, created on access
+  private abstract static class RangeList<T> extends AbstractList<T> implements RandomAccess {
+    private final int size;
+
+    RangeList(int from, int to) {
+      this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  final class LessonView implements Purchasable {
+    private final int row;
+
+    private LessonView(int row) {
+      this.row = row;
+    }
+
+    // Views are created on access; two views of the same row are the same item
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof LessonView view && view.row == row && view.owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return row;
+    }
+
+    private ColumnarCatalog owner() {
+      return ColumnarCatalog.this;
+    }
+
+    String getTitle() {
+      return lessonTitles[row];
+    }
+
+    double getPricePerHour() {
+      return Money.toDollars(rateCents[row]);
+    }
+
+    @Override
+    public long calculatePriceCents() {
+      return Money.lessonPrice(rateCents[row], duration[row]);
+    }
+
+    @Override
+    public double calculateDuration() {
+      return duration[row];
+    }
+
+    @Override
+    public PurchaseSummary summarize() {
+      return new PurchaseSummary(calculatePriceCents(), duration[row], 0, 1);
+    }
+
+    @Override
+    public int getModuleCount() {
+      return 0;
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent, SummaryTape tape) {
+      tape.next(); // Totals are stored, so one slot is recorded and the tree is rendered directly
+      render(out, indent);
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent) {
+      Render.lesson(out, indent, getTitle(), calculatePriceCents(), duration[row]);
+    }
+  }
+
+  final class CourseView implements Purchasable {
+    private final int row;
+
+    private CourseView(int row) {
+      this.row = row;
+    }
+
+    // Views are created on access; two views of the same row are the same item
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof CourseView view && view.row == row && view.owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return row;
+    }
+
+    private ColumnarCatalog owner() {
+      return ColumnarCatalog.this;
+    }
+
+    String getTitle() {
+      return courseTitles[row];
+    }
+
+    List<LessonView> getLessons() {
+      int first = courseLessonStart[row];
+      return new RangeList<>(first, courseLessonStart[row + 1]) {
+        @Override
+        public LessonView get(int i) {
+          return lesson(first + i);
+        }
+      };
+    }
+
+    @Override
+    public long calculatePriceCents() {
+      return coursePriceCents[row];
+    }
+
+    @Override
+    public double calculateDuration() {
+      return courseDuration[row];
+    }
+
+    @Override
+    public PurchaseSummary summarize() {
+      return new PurchaseSummary(coursePriceCents[row], courseDuration[row], 0,
+          courseLessonStart[row + 1] - courseLessonStart[row]);
+    }
+
+    @Override
+    public int getModuleCount() {
+      return 0;
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent, SummaryTape tape) {
+      tape.next(); // Totals are stored, so one slot is recorded and the tree is rendered directly
+      render(out, indent);
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent) {
+      Render.courseHeader(out, indent, getTitle(), coursePriceCents[row], courseDuration[row]);
+      List<LessonView> lessons = getLessons();
+      String childIndent = Render.nested(indent);
+      for (int i = 1; i <= lessons.size(); i++) {
+        Render.childHeading(out, indent, "Lesson", i);
+        lessons.get(i-1).render(out, childIndent);
+      }
+    }
+  }
+
+  final class ModuleView implements Purchasable {
+    private final int row;
+
+    private ModuleView(int row) {
+      this.row = row;
+    }
+
+    // Views are created on access; two views of the same row are the same item
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof ModuleView view && view.row == row && view.owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return row;
+    }
+
+    private ColumnarCatalog owner() {
+      return ColumnarCatalog.this;
+    }
+
+    String getTitle() {
+      return moduleTitles[row];
+    }
+
+    List<CourseView> getCourses() {
+      int first = moduleCourseStart[row];
+      return new RangeList<>(first, moduleCourseStart[row + 1]) {
+        @Override
+        public CourseView get(int i) {
+          return course(first + i);
+        }
+      };
+    }
+
+    @Override
+    public long calculatePriceCents() {
+      return modulePriceCents[row];
+    }
+
+    @Override
+    public double calculateDuration() {
+      return moduleDuration[row];
+    }
+
+    @Override
+    public PurchaseSummary summarize() {
+      int firstLesson = courseLessonStart[moduleCourseStart[row]];
+      int endLesson = courseLessonStart[moduleCourseStart[row + 1]];
+      return new PurchaseSummary(modulePriceCents[row], moduleDuration[row], 1, endLesson - firstLesson);
+    }
+
+    @Override
+    public int getModuleCount() {
+      return 1;
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent, SummaryTape tape) {
+      tape.next(); // Totals are stored, so one slot is recorded and the tree is rendered directly
+      render(out, indent);
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent) {
+      Render.moduleHeader(out, indent, getTitle(), modulePriceCents[row], moduleDuration[row]);
+      List<CourseView> courses = getCourses();
+      String childIndent = Render.nested(indent);
+      for (int i = 1; i <= courses.size(); i++) {
+        Render.childHeading(out, indent, "Course", i);
+        courses.get(i-1).render(out, childIndent);
+        Render.separator(out, indent);
+      }
+    }
+  }
+}
@@ -1,18 +1,38 @@
 import java.util.ArrayList;
+import java.util.List;
 
 public class Course implements Purchasable {
   private String title;
-  private final ArrayList<Lesson> lessons;
+  private int catalogId = CatalogRegistry.NO_ID; // Dense ID assigned by CatalogRegistry
+  private IndexedList<Lesson> lessons; // Ordered, with an O(1) membership index; null until loaded
+  private final List<Module> parents = new ArrayList<>(1); // Modules caching this course's totals
+  private boolean linked; // Whether the lessons list this course as a parent; see lessons()
+
+  // Cached totals, cleared whenever a lesson is added, removed or repriced
+  private PurchaseSummary cachedSummary; // null when stale
+
+  // Backing store for lessons that are loaded on demand; null for plain courses and once pinned
+  private LazyCatalog lazyCatalog;
+  private int storeIndex;
 
   // Constructors
   public Course(String title) {
     this.title = title;
-    this.lessons = new ArrayList<>();
+    this.lessons = new IndexedList<>();
   }
 
   public Course(String title, ArrayList<Lesson> lessons) {
     this.title = title;
-    this.lessons = lessons;
+    this.lessons = new IndexedList<>(lessons); // Linked on first use, so this does not escape
+  }
+
+  // Lessons are loaded from the catalog when first needed. The stored totals stand in until then.
+  Course(String title, LazyCatalog lazyCatalog, int storeIndex, PurchaseSummary storedSummary) {
+    this.title = title;
+    this.lazyCatalog = lazyCatalog;
+    this.storeIndex = storeIndex;
+    this.cachedSummary = storedSummary;
+    this.linked = true; // Loading links the lessons
   }
 
   // Getters and Setters
@@ -22,51 +42,162 @@ public class Course implements Purchasable {
 
   public void setTitle(String title) {
     this.title = title;
+    CatalogEpoch.advanceText(); // Rendered text shows titles
   }
 
-  public ArrayList<Lesson> getLessons() {
-    return lessons;
+  public int getCatalogId() {
+    return catalogId;
+  }
+
+  void setCatalogId(int catalogId) {
+    this.catalogId = catalogId;
+  }
+
+  // Read-only: lessons must be changed through addLesson/removeLesson so the cached totals stay valid
+  public List<Lesson> getLessons() {
+    return lessons().asList();
+  }
+
+  boolean isLoaded() {
+    return lessons != null;
   }
 
   @Override
-  public double calculatePrice() {
-    double totalPrice = 0;
-    for (Lesson lesson : lessons) {
-      totalPrice += lesson.calculatePrice();
-    }
-    return totalPrice;
+  public long calculatePriceCents() {
+    return summarize().getPriceCents();
   }
 
   @Override
   public double calculateDuration() {
-    double totalDuration = 0;
-    for (Lesson lesson : lessons) {
-      totalDuration += lesson.calculateDuration();
+    return summarize().getDuration();
+  }
+
+  @Override
+  public PurchaseSummary summarize() {
+    return summarize(false);
+  }
+
+  // Same totals, optionally summed on the fork/join pool when they are not cached
+  public PurchaseSummary summarize(boolean parallel) {
+    if (cachedSummary == null) {
+      cachedSummary = SummaryAggregator.sum(lessons().asList(), parallel);
+    }
+    return cachedSummary;
+  }
+
+  // Drops the cached totals here and in every module above. A valid parent always has valid
+  // children, so an already-invalid course can stop the walk early.
+  void invalidateTotals() {
+    if (cachedSummary == null) {
+      return;
+    }
+    pin(); // A lesson changed, so the stored copy is out of date
+    cachedSummary = null;
+    for (Module module : parents) {
+      module.invalidateTotals();
     }
-    return totalDuration;
   }
 
   public boolean addLesson(Lesson lesson) {
-    if (!lessons.contains(lesson)) {
-      lessons.add(lesson);
+    pin();
+    if (lessons().add(lesson)) {
+      lesson.attachTo(this);
+      invalidateTotals();
+      CatalogEpoch.advance();
       return true;
     }
     return false;
   }
 
   public boolean removeLesson(Lesson lesson) {
-    return lessons.remove(lesson);
+    pin();
+    if (lessons().remove(lesson)) {
+      lesson.detachFrom(this);
+      invalidateTotals();
+      CatalogEpoch.advance();
+      return true;
+    }
+    return false;
+  }
+
+  // Loads lessons from the backing catalog if needed and marks this course as recently used.
+  // Lessons given to the constructor are linked to this course here, on first use: nothing can
+  // need invalidating before then, as the totals are only cached through this accessor.
+  private IndexedList<Lesson> lessons() {
+    if (!linked) {
+      linked = true;
+      for (Lesson lesson : lessons.asList()) {
+        lesson.attachTo(this);
+      }
+    }
+    if (lazyCatalog != null) {
+      if (lessons == null) {
+        lessons = new IndexedList<>(lazyCatalog.loadLessons(this, storeIndex));
+        for (Lesson lesson : lessons.asList()) {
+          lesson.attachTo(this);
+        }
+      } else {
+        lazyCatalog.touch(this);
+      }
+    }
+    return lessons;
+  }
+
+  // Loads lessons and detaches from the backing catalog so they are never evicted
+  private void pin() {
+    if (lazyCatalog != null) {
+      lessons();
+      lazyCatalog.release(this);
+      lazyCatalog = null;
+    }
+  }
+
+  // Called by LazyCatalog on eviction. Views already handed out keep the old lessons.
+  void unloadLessons() {
+    for (Lesson lesson : lessons.asList()) {
+      lesson.detachFrom(this);
+    }
+    lessons = null;
+  }
+
+  // Parent links, maintained by Module.addCourse/removeCourse
+  void attachTo(Module module) {
+    parents.add(module);
+  }
+
+  void detachFrom(Module module) {
+    parents.remove(module);
+  }
+
+  // A copy, so callers may re-link parents while walking it
+  List<Module> getParents() {
+    return List.copyOf(parents);
+  }
+
+  @Override
+  public PurchaseSummary record(SummaryTape tape) {
+    int slot = tape.reserve();
+    List<Lesson> lessonList = lessons().asList();
+    PurchaseSummary[] parts = new PurchaseSummary[lessonList.size()];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = lessonList.get(i).record(tape);
+    }
+    if (cachedSummary == null) {
+      cachedSummary = SummaryAggregator.sum(parts, parts.length);
+    }
+    tape.fill(slot, cachedSummary);
+    return cachedSummary;
   }
 
   @Override
-  public void printDetails(String indent) {
-    System.out.println(indent + "Course: " + title);
-    System.out.println(indent + "Course Price: $" + String.format("%.2f", calculatePrice()));
-    System.out.println(indent + "Total Duration: " + String.format("%.2f", calculateDuration()) + " hours");
-    System.out.println(indent + "Lessons:");
-    for (int i = 1; i <= lessons.size(); i++) {
-      System.out.println(indent + "Lesson " + i + ":");
-      lessons.get(i-1).printDetails("  " + indent);
+  public void render(StringBuilder out, String indent, SummaryTape tape) {
+    PurchaseSummary summary = tape.next();
+    Render.courseHeader(out, indent, title, summary.getPriceCents(), summary.getDuration());
+    List<Lesson> lessonList = lessons().asList();
+    String childIndent = Render.nested(indent);
+    for (int i = 1; i <= lessonList.size(); i++) {
+      Render.childHeading(out, indent, "Lesson", i);
+      lessonList.get(i-1).render(out, childIndent, tape);
     }
   }
 
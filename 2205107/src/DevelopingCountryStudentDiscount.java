@@ -1,5 +1,7 @@
 public class DevelopingCountryStudentDiscount extends CartDecorator {
   private static final double DISCOUNT_AMOUNT = 10.0;
+  private static final DiscountRule RULE = DiscountRule.always(
+      "Developing Country Student Discount", DISCOUNT_AMOUNT);
   private final Customer customer;
 
   //Constructor
@@ -12,22 +14,10 @@ public class DevelopingCountryStudentDiscount extends CartDecorator {
     return customer.isStudent() && customer.isFromDevelopingCountry();
   }
 
+  // Customer eligibility is read when the rule is requested, so a compiled program
+  // captures the customer as they were at compile time
   @Override
-  public double calculatePrice() {
-    double basePrice = super.calculatePrice();
-
-    if (isEligibleForDiscount()) {
-      return Math.max(0, basePrice - DISCOUNT_AMOUNT);
-    }
-    
-    return basePrice;
-  }
-
-  @Override
-  public void printDetails(String indent) {
-    super.printDetails(indent);
-    if (isEligibleForDiscount()) {
-      System.out.println(indent + String.format("Developing Country Student Discount Applied: -$%.2f\n", DISCOUNT_AMOUNT));
-    }
+  protected DiscountRule toRule() {
+    return isEligibleForDiscount() ? RULE : null;
   }
 }
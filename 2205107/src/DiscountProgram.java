@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// A cart decorator chain flattened into its base cart plus an ordered list of discount rules.
+// Evaluation summarizes the cart once and then runs each rule in O(1) against that summary,
+// producing the breakdown that both the price and the receipt are printed from.
+class DiscountProgram {
+  private final Purchasable base;
+  private final List<DiscountRule> rules; // Innermost decorator first, same order as nested evaluation
+
+  private DiscountProgram(Purchasable base, List<DiscountRule> rules) {
+    this.base = base;
+    this.rules = rules;
+  }
+
+  static DiscountProgram compile(Purchasable checkout) {
+    List<DiscountRule> rules = new ArrayList<>();
+    Purchasable current = checkout;
+    while (current instanceof CartDecorator decorator) {
+      DiscountRule rule = decorator.toRule();
+      if (rule != null) {
+        rules.add(rule);
+      }
+      current = decorator.getCart();
+    }
+    Collections.reverse(rules);
+    return new DiscountProgram(current, Collections.unmodifiableList(rules));
+  }
+
+  PriceBreakdown evaluate() {
+    List<PriceBreakdown.LineItem> lineItems = new ArrayList<>();
+    PurchaseSummary subtotal;
+    if (base instanceof Cart cart) {
+      subtotal = PurchaseSummary.EMPTY;
+      for (Purchasable item : cart.getItems()) {
+        PurchaseSummary itemSummary = item.summarize();
+        lineItems.add(new PriceBreakdown.LineItem(item, itemSummary));
+        subtotal = subtotal.plus(itemSummary);
+      }
+    } else {
+      subtotal = base.summarize();
+      lineItems.add(new PriceBreakdown.LineItem(base, subtotal));
+    }
+    return evaluate(lineItems, subtotal);
+  }
+
+  // Evaluates against line items and a subtotal that are already known, e.g. the running
+  // totals kept by CartService, without walking any item trees
+  PriceBreakdown evaluate(List<PriceBreakdown.LineItem> lineItems, PurchaseSummary subtotal) {
+    List<DiscountRule> applied = new ArrayList<>();
+    PurchaseSummary total = subtotal;
+    for (DiscountRule rule : rules) {
+      if (rule.isEligible(total)) {
+        applied.add(rule);
+        total = rule.apply(total);
+      }
+    }
+    return new PriceBreakdown(lineItems, subtotal, applied, total.getPriceCents());
+  }
+
+  List<DiscountRule> getRules() {
+    return rules;
+  }
+}
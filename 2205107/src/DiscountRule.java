@@ -0,0 +1,72 @@
+import java.util.Comparator;
+
+// One flat discount step: a fixed amount off the cart price when a threshold on the cart's
+// summary is met. Cart decorators describe themselves as rules so a whole decorator chain can be
+// compiled into a DiscountProgram and evaluated against a single precomputed summary.
+public final class DiscountRule {
+  // Declared in receipt order: duration, then module count, then unconditional (customer) discounts
+  enum Condition { MIN_DURATION, MIN_MODULES, ALWAYS }
+
+  // Order discounts are listed on receipts, as the original console checkout printed them; ties
+  // keep the order they were applied in
+  static final Comparator<DiscountRule> RECEIPT_ORDER = Comparator.comparing(rule -> rule.condition);
+
+  private final String name;
+  private final String conditionText; // shown in receipts, may be null
+  private final long amountCents;
+  private final Condition condition;
+  private final double threshold;
+
+  private DiscountRule(String name, String conditionText, double amount, Condition condition, double threshold) {
+    this.name = name;
+    this.conditionText = conditionText;
+    this.amountCents = Money.fromDollars(amount);
+    this.condition = condition;
+    this.threshold = threshold;
+  }
+
+  public static DiscountRule always(String name, double amount) {
+    return new DiscountRule(name, null, amount, Condition.ALWAYS, 0);
+  }
+
+  public static DiscountRule minDuration(String name, String conditionText, double amount, double minHours) {
+    return new DiscountRule(name, conditionText, amount, Condition.MIN_DURATION, minHours);
+  }
+
+  public static DiscountRule minModules(String name, String conditionText, double amount, int minModules) {
+    return new DiscountRule(name, conditionText, amount, Condition.MIN_MODULES, minModules);
+  }
+
+  public boolean isEligible(PurchaseSummary cart) {
+    return switch (condition) {
+      case ALWAYS -> true;
+      case MIN_DURATION -> cart.getDuration() >= threshold;
+      case MIN_MODULES -> cart.getModuleCount() >= threshold;
+    };
+  }
+
+  // Discounted totals; the price never drops below zero
+  public PurchaseSummary apply(PurchaseSummary cart) {
+    if (isEligible(cart)) {
+      return cart.withPriceCents(Math.max(0, cart.getPriceCents() - amountCents));
+    }
+    return cart;
+  }
+
+  // Getters
+  public String getName() {
+    return name;
+  }
+
+  public long getAmountCents() {
+    return amountCents;
+  }
+
+  public double getAmount() {
+    return Money.toDollars(amountCents);
+  }
+
+  public String getLabel() {
+    return conditionText == null ? name : name + " (" + conditionText + ")";
+  }
+}
@@ -0,0 +1,164 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// Insertion-ordered children with a hash index beside them, used by Cart, Course and Module.
+// contains, add and remove are O(1) amortized: removal leaves a null tombstone in the slot
+// array, and the array is compacted once tombstones outnumber live entries, or when the view is
+// next handed out or sized. get never writes, so several threads may read a list nobody is
+// changing, e.g. the fork/join workers of a parallel sum. Equal elements may appear more than
+// once when loaded in bulk; the index then tracks the first occurrence and a count.
+final class IndexedList<T> {
+  private static final class Entry {
+    int slot; // Position of the first occurrence in slots
+    int count;
+
+    Entry(int slot) {
+      this.slot = slot;
+      this.count = 1;
+    }
+  }
+
+  private final ArrayList<T> slots = new ArrayList<>();
+  private final Map<T, Entry> index = new HashMap<>();
+  private int tombstones;
+  private final List<T> view = new View();
+
+  IndexedList() {
+  }
+
+  IndexedList(Collection<? extends T> initial) {
+    addAllAllowingDuplicates(initial);
+  }
+
+  boolean contains(T element) {
+    return index.containsKey(element);
+  }
+
+  int size() {
+    return slots.size() - tombstones;
+  }
+
+  // Appends unless an equal element is already present
+  boolean add(T element) {
+    if (index.containsKey(element)) {
+      return false;
+    }
+    index.put(element, new Entry(slots.size()));
+    slots.add(element);
+    return true;
+  }
+
+  // Appends even if an equal element is present, matching a plain list
+  void addAllowingDuplicate(T element) {
+    Entry entry = index.get(element);
+    if (entry == null) {
+      index.put(element, new Entry(slots.size()));
+    } else {
+      entry.count++;
+    }
+    slots.add(element);
+  }
+
+  void addAllAllowingDuplicates(Collection<? extends T> elements) {
+    slots.ensureCapacity(slots.size() + elements.size());
+    for (T element : elements) {
+      addAllowingDuplicate(element);
+    }
+  }
+
+  // Removes the first occurrence, like List.remove(Object)
+  boolean remove(T element) {
+    Entry entry = index.get(element);
+    if (entry == null) {
+      return false;
+    }
+    int slot = entry.slot;
+    slots.set(slot, null);
+    tombstones++;
+    if (--entry.count == 0) {
+      index.remove(element);
+    } else {
+      entry.slot = nextOccurrence(element, slot + 1); // Only duplicates pay for a scan
+    }
+    if (tombstones > slots.size() - tombstones) {
+      compact();
+    }
+    return true;
+  }
+
+  void clear() {
+    slots.clear();
+    index.clear();
+    tombstones = 0;
+  }
+
+  // Read-only, live, RandomAccess view in insertion order
+  List<T> asList() {
+    compact();
+    return view;
+  }
+
+  private int nextOccurrence(T element, int from) {
+    for (int i = from; i < slots.size(); i++) {
+      T candidate = slots.get(i);
+      if (candidate != null && candidate.equals(element)) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("Index out of sync with slots");
+  }
+
+  private void compact() {
+    if (tombstones == 0) {
+      return;
+    }
+    int write = 0;
+    for (int read = 0; read < slots.size(); read++) {
+      T element = slots.get(read);
+      if (element == null) {
+        continue;
+      }
+      Entry entry = index.get(element);
+      if (entry.slot == read) {
+        entry.slot = write;
+      }
+      slots.set(write++, element);
+    }
+    slots.subList(write, slots.size()).clear();
+    tombstones = 0;
+  }
+
+  private final class View extends AbstractList<T> implements RandomAccess {
+    // No side effects. A view held across a removal with no size() since falls back to a scan.
+    @Override
+    public T get(int position) {
+      Objects.checkIndex(position, IndexedList.this.size());
+      if (tombstones == 0) {
+        return slots.get(position);
+      }
+      for (T element : slots) {
+        if (element != null && position-- == 0) {
+          return element;
+        }
+      }
+      throw new IllegalStateException("Tombstone count out of sync with slots");
+    }
+
+    @Override
+    public int size() {
+      compact();
+      return IndexedList.this.size();
+    }
+
+    @Override
+    public boolean contains(Object element) {
+      return index.containsKey(element);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Object catalog hydrated on demand from an OffHeapCatalogStore. Modules start with just a title
+// and their stored totals; a module's courses are created the first time they are asked for, and
+// a course's lessons the first time they are listed, printed or re-priced. Loaded lessons are held
+// in an LRU cache bounded by lesson count, so memory follows what users browse rather than the
+// size of the catalog. Evicting a course drops its lessons but keeps its totals.
+//
+// Lesson objects handed out before their course is evicted keep working on their own, but they no
+// longer feed the course's totals and a later load creates fresh Lesson objects. A course that is
+// changed through addLesson/removeLesson or a lesson setter is pinned and never evicted, so edits
+// are not lost.
+final class LazyCatalog {
+  static final int DEFAULT_MAX_LOADED_LESSONS = 100_000;
+
+  private final OffHeapCatalogStore store;
+  private final int maxLoadedLessons;
+  // Loaded objects share title Strings. Both keys and values are weak, so a title is dropped once
+  // no loaded Module, Course or Lesson uses it and the map shrinks with the lesson cache.
+  private final Map<String, WeakReference<String>> titles = new WeakHashMap<>();
+  private final Map<Course, Integer> loaded = new LinkedHashMap<>(16, 0.75f, true); // Course -> lesson count
+  private int loadedLessons;
+  private long loads; // Lesson loads, including reloads after eviction
+
+  LazyCatalog(OffHeapCatalogStore store, int maxLoadedLessons) {
+    if (maxLoadedLessons < 1) {
+      throw new IllegalArgumentException("maxLoadedLessons must be positive: " + maxLoadedLessons);
+    }
+    this.store = store;
+    this.maxLoadedLessons = maxLoadedLessons;
+  }
+
+  // Top-level modules, each with unloaded courses
+  synchronized List<Module> modules() {
+    List<OffHeapCatalogStore.ModuleRecord> records = store.modules();
+    List<Module> modules = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      OffHeapCatalogStore.ModuleRecord record = records.get(i);
+      modules.add(new Module(intern(record.getTitle()), this, i, record.summarize()));
+    }
+    return modules;
+  }
+
+  synchronized int loadedCourseCount() {
+    return loaded.size();
+  }
+
+  synchronized int loadedLessonCount() {
+    return loadedLessons;
+  }
+
+  synchronized long loadCount() {
+    return loads;
+  }
+
+  // Called by Module the first time its courses are needed
+  synchronized List<Course> loadCourses(int moduleIndex) {
+    List<OffHeapCatalogStore.CourseRecord> records = store.module(moduleIndex).getCourses();
+    int first = store.module(moduleIndex).firstCourseIndex();
+    List<Course> courses = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      OffHeapCatalogStore.CourseRecord record = records.get(i);
+      courses.add(new Course(intern(record.getTitle()), this, first + i, record.summarize()));
+    }
+    return courses;
+  }
+
+  // Called by Course when its lessons are needed and not loaded. The course becomes the most
+  // recently used entry, and colder courses are evicted until the cache is back under budget.
+  synchronized List<Lesson> loadLessons(Course course, int courseIndex) {
+    List<OffHeapCatalogStore.LessonRecord> records = store.course(courseIndex).getLessons();
+    List<Lesson> lessons = new ArrayList<>(records.size());
+    for (OffHeapCatalogStore.LessonRecord record : records) {
+      lessons.add(new Lesson(intern(record.getTitle()), record.getPricePerHour(), record.calculateDuration()));
+    }
+    loads++;
+    loaded.put(course, lessons.size());
+    loadedLessons += lessons.size();
+    evictColdCourses(course);
+    return lessons;
+  }
+
+  // Marks a loaded course as recently used
+  synchronized void touch(Course course) {
+    loaded.get(course);
+  }
+
+  // Stops tracking a course that has been pinned; its lessons stay loaded
+  synchronized void release(Course course) {
+    Integer count = loaded.remove(course);
+    if (count != null) {
+      loadedLessons -= count;
+    }
+  }
+
+  private String intern(String title) {
+    WeakReference<String> held = titles.get(title);
+    String canonical = held == null ? null : held.get();
+    if (canonical == null) {
+      canonical = title;
+      titles.put(title, new WeakReference<>(title));
+    }
+    return canonical;
+  }
+
+  private void evictColdCourses(Course keep) {
+    Iterator<Map.Entry<Course, Integer>> eldest = loaded.entrySet().iterator();
+    while (loadedLessons > maxLoadedLessons && eldest.hasNext()) {
+      Map.Entry<Course, Integer> entry = eldest.next();
+      if (entry.getKey() == keep) {
+        continue; // A single course larger than the budget still has to load
+      }
+      entry.getKey().unloadLessons();
+      loadedLessons -= entry.getValue();
+      eldest.remove();
+    }
+  }
+}
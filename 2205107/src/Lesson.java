@@ -1,26 +1,30 @@
+import java.util.ArrayList;
+import java.util.List;
+
 public class Lesson implements Purchasable {
   private String title;
-  private double pricePerHour;
+  private int catalogId = CatalogRegistry.NO_ID; // Dense ID assigned by CatalogRegistry
+  private long rateCents; // Price per hour in cents
   private double duration; // in hours
+  private final List<Course> parents = new ArrayList<>(1); // Courses caching this lesson's totals
 
   // Constructor
   public Lesson(String title, double pricePerHour, double duration) {
     this.title = title;
-    this.pricePerHour = pricePerHour;
+    this.rateCents = Money.fromDollars(pricePerHour);
     this.duration = duration;
   }
 
   @Override
-  public void printDetails(String indent) {
-    System.out.println(indent + String.format("Lesson: %s", title));
-    System.out.println(indent + String.format("Lesson Price: $%.2f", calculatePrice()));
-    System.out.println(indent + String.format("Duration: %.2f hours", duration));
+  public void render(StringBuilder out, String indent, SummaryTape tape) {
+    PurchaseSummary summary = tape.next();
+    Render.lesson(out, indent, title, summary.getPriceCents(), summary.getDuration());
   }
 
   // Getters and Setters
   @Override
-  public double calculatePrice() {
-    return pricePerHour * duration;
+  public long calculatePriceCents() {
+    return Money.lessonPrice(rateCents, duration);
   }
 
   @Override
@@ -28,24 +32,66 @@ public class Lesson implements Purchasable {
     return duration;
   }
 
+  @Override
+  public PurchaseSummary summarize() {
+    return new PurchaseSummary(calculatePriceCents(), duration, 0, 1);
+  }
+
   public String getTitle() {
     return title;
   }
 
   public double getPricePerHour() {
-    return pricePerHour;
+    return Money.toDollars(rateCents);
   }
 
+  public long getPricePerHourCents() {
+    return rateCents;
+  }
+
+  // Rounded to the nearest cent per hour
   public void setPricePerHour(double pricePerHour) {
-    this.pricePerHour = pricePerHour;
+    this.rateCents = Money.fromDollars(pricePerHour);
+    notifyParents();
   }
 
   public void setTitle(String title) {
     this.title = title;
+    CatalogEpoch.advanceText(); // Rendered text shows titles
+  }
+
+  public int getCatalogId() {
+    return catalogId;
+  }
+
+  void setCatalogId(int catalogId) {
+    this.catalogId = catalogId;
   }
 
   public void setDuration(double duration) {
     this.duration = duration;
+    notifyParents();
+  }
+
+  // Parent links, maintained by Course.addLesson/removeLesson
+  void attachTo(Course course) {
+    parents.add(course);
+  }
+
+  void detachFrom(Course course) {
+    parents.remove(course);
+  }
+
+  // A copy, so callers may re-link parents while walking it
+  List<Course> getParents() {
+    return List.copyOf(parents);
+  }
+
+  private void notifyParents() {
+    CatalogEpoch.advance();
+    for (Course course : parents) {
+      course.invalidateTotals();
+    }
   }
 
   @Override
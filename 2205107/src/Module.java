@@ -1,18 +1,37 @@
 import java.util.ArrayList;
+import java.util.List;
 
 public class Module implements Purchasable {
   private String title;
-  private final ArrayList<Course> courses;
+  private int catalogId = CatalogRegistry.NO_ID; // Dense ID assigned by CatalogRegistry
+  private IndexedList<Course> courses; // Ordered, with an O(1) membership index; null until loaded
+  private boolean linked; // Whether the courses list this module as a parent; see courses()
+
+  // Cached totals, cleared whenever a course is added, removed or changes underneath
+  private PurchaseSummary cachedSummary; // null when stale
+
+  // Backing store for courses that are loaded on demand; null once loaded
+  private LazyCatalog lazyCatalog;
+  private int storeIndex;
 
   // Constructors
   public Module(String title) {
     this.title = title;
-    this.courses = new ArrayList<>();
+    this.courses = new IndexedList<>();
   }
 
   public Module(String title, ArrayList<Course> courses) {
     this.title = title;
-    this.courses = courses;
+    this.courses = new IndexedList<>(courses); // Linked on first use, so this does not escape
+  }
+
+  // Courses are loaded from the catalog when first needed. The stored totals stand in until then.
+  Module(String title, LazyCatalog lazyCatalog, int storeIndex, PurchaseSummary storedSummary) {
+    this.title = title;
+    this.lazyCatalog = lazyCatalog;
+    this.storeIndex = storeIndex;
+    this.cachedSummary = storedSummary;
+    this.linked = true; // Loading links the courses
   }
 
   // Getters and Setters
@@ -22,52 +41,114 @@ public class Module implements Purchasable {
 
   public void setTitle(String title) {
     this.title = title;
+    CatalogEpoch.advanceText(); // Rendered text shows titles
   }
 
-  public ArrayList<Course> getCourses() {
-    return courses;
+  public int getCatalogId() {
+    return catalogId;
+  }
+
+  void setCatalogId(int catalogId) {
+    this.catalogId = catalogId;
+  }
+
+  // Read-only: courses must be changed through addCourse/removeCourse so the cached totals stay valid
+  public List<Course> getCourses() {
+    return courses().asList();
+  }
+
+  boolean isLoaded() {
+    return courses != null;
   }
 
   @Override
-  public double calculatePrice() {
-    double totalPrice = 0;
-    for (Course course : courses) {
-      totalPrice += course.calculatePrice();
-    }
-    return totalPrice;
+  public long calculatePriceCents() {
+    return summarize().getPriceCents();
   }
 
   @Override
   public double calculateDuration() {
-    double totalDuration = 0;
-    for (Course course : courses) {
-      totalDuration += course.calculateDuration();
+    return summarize().getDuration();
+  }
+
+  @Override
+  public PurchaseSummary summarize() {
+    if (cachedSummary == null) {
+      PurchaseSummary self = new PurchaseSummary(0, 0, 1, 0); // This module itself
+      cachedSummary = self.plus(SummaryAggregator.sum(courses().asList()));
     }
-    return totalDuration;
+    return cachedSummary;
+  }
+
+  void invalidateTotals() {
+    cachedSummary = null;
   }
 
   public boolean addCourse(Course course) {
-    if (!courses.contains(course)) {
-      courses.add(course);
+    if (courses().add(course)) {
+      course.attachTo(this);
+      invalidateTotals();
+      CatalogEpoch.advance();
       return true;
     }
     return false;
   }
 
   public boolean removeCourse(Course course) {
-    return courses.remove(course);
+    if (courses().remove(course)) {
+      course.detachFrom(this);
+      invalidateTotals();
+      CatalogEpoch.advance();
+      return true;
+    }
+    return false;
+  }
+
+  // Loads courses from the backing catalog if needed. Courses given to the constructor are linked
+  // to this module here, on first use: the totals are only cached through this accessor.
+  private IndexedList<Course> courses() {
+    if (!linked) {
+      linked = true;
+      for (Course course : courses.asList()) {
+        course.attachTo(this);
+      }
+    }
+    if (courses == null) {
+      courses = new IndexedList<>(lazyCatalog.loadCourses(storeIndex));
+      for (Course course : courses.asList()) {
+        course.attachTo(this);
+      }
+      lazyCatalog = null;
+    }
+    return courses;
+  }
+
+  @Override
+  public PurchaseSummary record(SummaryTape tape) {
+    int slot = tape.reserve();
+    List<Course> courseList = courses().asList();
+    PurchaseSummary[] parts = new PurchaseSummary[courseList.size()];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = courseList.get(i).record(tape);
+    }
+    if (cachedSummary == null) {
+      PurchaseSummary self = new PurchaseSummary(0, 0, 1, 0); // This module itself
+      cachedSummary = self.plus(SummaryAggregator.sum(parts, parts.length));
+    }
+    tape.fill(slot, cachedSummary);
+    return cachedSummary;
   }
 
   @Override
-  public void printDetails(String indent) {
-    System.out.println(indent + "Module: " + title);
-    System.out.println(indent + "Module Price: $" + String.format("%.2f", calculatePrice()));
-    System.out.println(indent + "Total Duration: " + String.format("%.2f", calculateDuration()) + " hours");
-    
-    for (int i = 1; i <= courses.size(); i++) {
-      System.out.println(indent + "Course " + i + ":");
-      courses.get(i-1).printDetails("  " + indent);
-      System.out.println(indent + "-------------------");
+  public void render(StringBuilder out, String indent, SummaryTape tape) {
+    PurchaseSummary summary = tape.next();
+    Render.moduleHeader(out, indent, title, summary.getPriceCents(), summary.getDuration());
+    List<Course> courseList = courses().asList();
+    String childIndent = Render.nested(indent);
+    for (int i = 1; i <= courseList.size(); i++) {
+      Render.childHeading(out, indent, "Course", i);
+      courseList.get(i-1).render(out, childIndent, tape);
+      Render.separator(out, indent);
     }
   }
 
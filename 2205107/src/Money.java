@@ -0,0 +1,22 @@
+// Prices are whole cents in a long. Sums and differences are exact integer arithmetic, so totals
+// do not depend on summation order and can be cached, subtracted back out and computed in
+// parallel without drift. Doubles appear only at the edges: dollar amounts coming in from
+// callers and catalog files, and the dollar view returned by calculatePrice().
+final class Money {
+  private Money() {
+  }
+
+  // Nearest cent, halves rounded up
+  static long fromDollars(double dollars) {
+    return Math.round(dollars * 100);
+  }
+
+  static double toDollars(long cents) {
+    return cents / 100.0;
+  }
+
+  // Price of a lesson: its hourly rate times its hours, rounded half-up to the cent
+  static long lessonPrice(long rateCents, double hours) {
+    return Math.round(rateCents * hours);
+  }
+}
@@ -0,0 +1,66 @@
+import java.util.Locale;
+
+// Appends two-decimal amounts ("12.50") straight into a StringBuilder without a Formatter, format
+// string parse or temporary String. The digits match String.format("%.2f", value): Formatter
+// rounds the shortest decimal form of the double half-up, so a double that is the closest one to
+// an exact half-cent such as 2.505 rounds up even though its binary value is slightly below it.
+// Non-finite and huge values are handed to String.format. The decimal separator is always '.'.
+final class MoneyFormat {
+  // Below this, cents and half-cents are exact in a double and a long
+  private static final double MAX_FAST = 1e13;
+
+  private MoneyFormat() {
+  }
+
+  static StringBuilder appendFixed2(StringBuilder out, double value) {
+    if (!(Math.abs(value) < MAX_FAST)) {
+      return out.append(String.format(Locale.ROOT, "%.2f", value)); // NaN, infinities and huge values
+    }
+    double magnitude = Math.abs(value);
+    double scaled = magnitude * 100;
+    double whole = Math.floor(scaled);
+    double fraction = scaled - whole;
+    long cents = (long) whole;
+    if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) {
+      // Near a half-cent: the double closest to it prints as exactly that half-cent and rounds up.
+      // Division is correctly rounded, so this is that closest double.
+      double halfCent = (2 * cents + 1) / 200.0;
+      if (magnitude >= halfCent) {
+        cents++;
+      }
+    } else if (fraction > 0.5) {
+      cents++;
+    }
+    if (value < 0 || (value == 0 && 1 / value < 0)) {
+      out.append('-'); // String.format keeps the sign of small negatives and -0.0
+    }
+    out.append(cents / 100).append('.');
+    int remainder = (int) (cents % 100);
+    return out.append((char) ('0' + remainder / 10)).append((char) ('0' + remainder % 10));
+  }
+
+  // Exact cents as dollars: 1250 -> "12.50"
+  static StringBuilder appendCents(StringBuilder out, long cents) {
+    if (cents < 0) {
+      out.append('-');
+    }
+    long magnitude = Math.abs(cents);
+    out.append(magnitude / 100).append('.');
+    int remainder = (int) (magnitude % 100);
+    return out.append((char) ('0' + remainder / 10)).append((char) ('0' + remainder % 10));
+  }
+
+  // 1250 -> "$12.50"
+  static StringBuilder appendMoneyCents(StringBuilder out, long cents) {
+    return appendCents(out.append('$'), cents);
+  }
+
+  static StringBuilder appendMoney(StringBuilder out, double value) {
+    return appendFixed2(out.append('$'), value);
+  }
+
+  // "12.50 hours"
+  static StringBuilder appendHours(StringBuilder out, double hours) {
+    return appendFixed2(out, hours).append(" hours");
+  }
+}
@@ -0,0 +1,100 @@
+import java.util.Locale;
+import java.util.Random;
+
+// Times MoneyFormat against String.format("%.2f") on typical prices, then a full render of a
+// large module, and checks both formatters agree on every value. Run with: java MoneyFormatBenchmark
+public class MoneyFormatBenchmark {
+  private static final int VALUE_COUNT = 100_000;
+  private static final int WARMUP_ROUNDS = 5;
+  private static final long MIN_MEASURE_NANOS = 500_000_000L;
+
+  public static void main(String[] args) {
+    double[] values = randomPrices(VALUE_COUNT, new Random(42));
+    StringBuilder out = new StringBuilder(32);
+
+    int mismatches = 0;
+    for (double value : values) {
+      out.setLength(0);
+      if (!MoneyFormat.appendFixed2(out, value).toString().equals(String.format(Locale.ROOT, "%.2f", value))) {
+        mismatches++;
+      }
+    }
+
+    System.out.println("=".repeat(80));
+    System.out.println("TWO-DECIMAL FORMATTING: MoneyFormat VS String.format");
+    System.out.println("=".repeat(80));
+    double formatNanos = time(() -> {
+      long length = 0;
+      for (double value : values) {
+        length += String.format("%.2f", value).length();
+      }
+      return length;
+    }) / values.length;
+    double moneyNanos = time(() -> {
+      long length = 0;
+      for (double value : values) {
+        out.setLength(0);
+        length += MoneyFormat.appendFixed2(out, value).length();
+      }
+      return length;
+    }) / values.length;
+    System.out.println(String.format("%-28s %12.1f ns/value", "String.format(\"%.2f\")", formatNanos));
+    System.out.println(String.format("%-28s %12.1f ns/value %9.1fx", "MoneyFormat.appendFixed2", moneyNanos,
+        formatNanos / moneyNanos));
+    System.out.println("Values formatted differently: " + mismatches + " of " + values.length);
+
+    Module module = largeModule();
+    StringBuilder screen = new StringBuilder(1 << 20);
+    double renderMicros = time(() -> {
+      screen.setLength(0);
+      module.render(screen, "> ");
+      return screen.length();
+    }) / 1_000.0;
+    System.out.println("-".repeat(80));
+    System.out.println(String.format("Render of a %d-lesson module: %.1f us", module.summarize().getLessonCount(), renderMicros));
+  }
+
+  private static double[] randomPrices(int count, Random random) {
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = (5 + random.nextInt(4_000) / 100.0) * (0.25 + random.nextInt(16) * 0.25);
+    }
+    return values;
+  }
+
+  private static Module largeModule() {
+    Module module = new Module("Benchmark Module");
+    for (int c = 0; c < 20; c++) {
+      Course course = new Course("Course " + c);
+      for (int l = 0; l < 25; l++) {
+        course.addLesson(new Lesson("Lesson " + l, 10 + l * 0.75, 0.5 + (l % 4) * 0.25));
+      }
+      module.addCourse(course);
+    }
+    return module;
+  }
+
+  // Average nanoseconds per call after warm-up
+  private static double time(Work work) {
+    long sink = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += work.run();
+    }
+    int rounds = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      sink += work.run();
+      rounds++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < MIN_MEASURE_NANOS);
+    if (sink == 42) {
+      System.out.println(); // Keeps the JIT from discarding the work
+    }
+    return (double) elapsed / rounds;
+  }
+
+  private interface Work {
+    long run();
+  }
+}
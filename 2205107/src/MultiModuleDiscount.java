@@ -2,32 +2,16 @@
 public class MultiModuleDiscount extends CartDecorator {
   private static final double DISCOUNT_AMOUNT = 15.0;
   private static final int MIN_MODULES_FOR_DISCOUNT = 2;
+  private static final DiscountRule RULE = DiscountRule.minModules(
+      "Multi-Module Discount", "2+ modules", DISCOUNT_AMOUNT, MIN_MODULES_FOR_DISCOUNT);
 
   public MultiModuleDiscount(Purchasable cart) {
     super(cart);
   }
 
-  private boolean isEligibleForDiscount() {
-    return getModuleCount() >= MIN_MODULES_FOR_DISCOUNT;
-  }
-
-  @Override
-  public double calculatePrice() {
-    double basePrice = super.calculatePrice();
-
-    if (isEligibleForDiscount()) {
-      return Math.max(0, basePrice - DISCOUNT_AMOUNT);
-    }
-
-    return basePrice;
-  }
-
   @Override
-  public void printDetails(String indent) {
-    super.printDetails(indent);
-    if (isEligibleForDiscount()) {
-      System.out.println(indent + String.format("Multi-Module Discount Applied: -$%.2f\n", DISCOUNT_AMOUNT));
-    }
+  protected DiscountRule toRule() {
+    return RULE;
   }
 
   @Override
@@ -0,0 +1,616 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Catalog held outside the Java heap in MemorySegments: fixed-width module, course and lesson
+// records in three segments plus a UTF-8 title arena. Records with the same title point at the
+// same bytes. A built store keeps nothing on the heap that grows with catalog size, so a catalog of
+// millions of lessons adds no GC work. While building, title bytes go straight off-heap and the
+// heap holds only a hash index of them, capped at MAX_TITLE_INDEX slots (8 bytes each); titles
+// past the cap are stored without deduplication. Rows are read through small flyweight views that
+// implement Purchasable and decode fields on access.
+//
+// Record layouts (native byte order):
+//   module: long priceCents, double duration, int firstCourse, int courseCount, int titleOffset, int titleLength
+//   course: long priceCents, double duration, int firstLesson, int lessonCount, int titleOffset, int titleLength
+//   lesson: long rateCents, double duration, int titleOffset, int titleLength
+// Course and module totals are stored at build time; durations are summed in SummaryAggregator's order.
+final class OffHeapCatalogStore implements AutoCloseable {
+  static final long GROUP_BYTES = 32; // Module and course records
+  static final long LESSON_BYTES = 24;
+  static final int MAX_TITLE_INDEX = 1 << 20; // Builder heap for title dedup: 8 MB at most
+
+  private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED;
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+
+  // Field offsets within a record
+  private static final long PRICE = 0; // Cents; the hourly rate for lessons
+  private static final long DURATION = 8;
+  private static final long FIRST_CHILD = 16;
+  private static final long CHILD_COUNT = 20;
+  private static final long GROUP_TITLE_OFFSET = 24;
+  private static final long GROUP_TITLE_LENGTH = 28;
+  private static final long LESSON_TITLE_OFFSET = 16;
+  private static final long LESSON_TITLE_LENGTH = 20;
+
+  private final Arena arena; // Owns the segments; null when someone else manages their lifetime
+  private final MemorySegment modules;
+  private final MemorySegment courses;
+  private final MemorySegment lessons;
+  private final MemorySegment titles;
+
+  OffHeapCatalogStore(Arena arena, MemorySegment modules, MemorySegment courses, MemorySegment lessons,
+      MemorySegment titles) {
+    this.arena = arena;
+    this.modules = modules;
+    this.courses = courses;
+    this.lessons = lessons;
+    this.titles = titles;
+  }
+
+  static OffHeapCatalogStore from(List<Module> catalog) {
+    Builder builder = new Builder();
+    for (Module module : catalog) {
+      builder.startModule(module.getTitle());
+      for (Course course : module.getCourses()) {
+        builder.startCourse(course.getTitle());
+        for (Lesson lesson : course.getLessons()) {
+          builder.addLesson(lesson.getTitle(), lesson.getPricePerHour(), lesson.calculateDuration());
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  int moduleCount() {
+    return (int) (modules.byteSize() / GROUP_BYTES);
+  }
+
+  int courseCount() {
+    return (int) (courses.byteSize() / GROUP_BYTES);
+  }
+
+  int lessonCount() {
+    return (int) (lessons.byteSize() / LESSON_BYTES);
+  }
+
+  long offHeapBytes() {
+    return modules.byteSize() + courses.byteSize() + lessons.byteSize() + titles.byteSize();
+  }
+
+  ModuleRecord module(int index) {
+    return new ModuleRecord(index);
+  }
+
+  CourseRecord course(int index) {
+    return new CourseRecord(index);
+  }
+
+  LessonRecord lesson(int index) {
+    return new LessonRecord(index);
+  }
+
+  List<ModuleRecord> modules() {
+    return new RangeList<>(0, moduleCount()) {
+      @Override
+      public ModuleRecord get(int i) {
+        return module(i);
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    if (arena != null) {
+      arena.close();
+    }
+  }
+
+  private String title(long offset, int length) {
+    byte[] bytes = new byte[length];
+    MemorySegment.copy(titles, ValueLayout.JAVA_BYTE, offset, bytes, 0, length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // Segments backing this store, for writers such as snapshots
+  MemorySegment modulesSegment() {
+    return modules;
+  }
+
+  MemorySegment coursesSegment() {
+    return courses;
+  }
+
+  MemorySegment lessonsSegment() {
+    return lessons;
+  }
+
+  MemorySegment titlesSegment() {
+    return titles;
+  }
+
+  private abstract static class RangeList<T> extends AbstractList<T> implements RandomAccess {
+    private final int size;
+
+    RangeList(int from, int to) {
+      this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  final class LessonRecord implements Purchasable {
+    private final long base;
+
+    private LessonRecord(int index) {
+      this.base = Math.multiplyExact(index, LESSON_BYTES);
+    }
+
+    String getTitle() {
+      return title(lessons.get(INT, base + LESSON_TITLE_OFFSET), lessons.get(INT, base + LESSON_TITLE_LENGTH));
+    }
+
+    double getPricePerHour() {
+      return Money.toDollars(lessons.get(LONG, base + PRICE));
+    }
+
+    @Override
+    public long calculatePriceCents() {
+      return Money.lessonPrice(lessons.get(LONG, base + PRICE), calculateDuration());
+    }
+
+    @Override
+    public double calculateDuration() {
+      return lessons.get(DOUBLE, base + DURATION);
+    }
+
+    @Override
+    public PurchaseSummary summarize() {
+      return new PurchaseSummary(calculatePriceCents(), calculateDuration(), 0, 1);
+    }
+
+    @Override
+    public int getModuleCount() {
+      return 0;
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent, SummaryTape tape) {
+      tape.next(); // Totals are stored, so one slot is recorded and the tree is rendered directly
+      render(out, indent);
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent) {
+      Render.lesson(out, indent, getTitle(), calculatePriceCents(), calculateDuration());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof LessonRecord record && record.base == base && record.owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(base);
+    }
+
+    private OffHeapCatalogStore owner() {
+      return OffHeapCatalogStore.this;
+    }
+  }
+
+  final class CourseRecord implements Purchasable {
+    private final long base;
+
+    private CourseRecord(int index) {
+      this.base = Math.multiplyExact(index, GROUP_BYTES);
+    }
+
+    String getTitle() {
+      return title(courses.get(INT, base + GROUP_TITLE_OFFSET), courses.get(INT, base + GROUP_TITLE_LENGTH));
+    }
+
+    List<LessonRecord> getLessons() {
+      int first = courses.get(INT, base + FIRST_CHILD);
+      return new RangeList<>(first, first + courses.get(INT, base + CHILD_COUNT)) {
+        @Override
+        public LessonRecord get(int i) {
+          return lesson(first + i);
+        }
+      };
+    }
+
+    @Override
+    public long calculatePriceCents() {
+      return courses.get(LONG, base + PRICE);
+    }
+
+    @Override
+    public double calculateDuration() {
+      return courses.get(DOUBLE, base + DURATION);
+    }
+
+    @Override
+    public PurchaseSummary summarize() {
+      return new PurchaseSummary(calculatePriceCents(), calculateDuration(), 0, courses.get(INT, base + CHILD_COUNT));
+    }
+
+    @Override
+    public int getModuleCount() {
+      return 0;
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent, SummaryTape tape) {
+      tape.next(); // Totals are stored, so one slot is recorded and the tree is rendered directly
+      render(out, indent);
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent) {
+      Render.courseHeader(out, indent, getTitle(), calculatePriceCents(), calculateDuration());
+      List<LessonRecord> children = getLessons();
+      String childIndent = Render.nested(indent);
+      for (int i = 1; i <= children.size(); i++) {
+        Render.childHeading(out, indent, "Lesson", i);
+        children.get(i-1).render(out, childIndent);
+      }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof CourseRecord record && record.base == base && record.owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(base);
+    }
+
+    private OffHeapCatalogStore owner() {
+      return OffHeapCatalogStore.this;
+    }
+  }
+
+  final class ModuleRecord implements Purchasable {
+    private final long base;
+
+    private ModuleRecord(int index) {
+      this.base = Math.multiplyExact(index, GROUP_BYTES);
+    }
+
+    String getTitle() {
+      return title(modules.get(INT, base + GROUP_TITLE_OFFSET), modules.get(INT, base + GROUP_TITLE_LENGTH));
+    }
+
+    int firstCourseIndex() {
+      return modules.get(INT, base + FIRST_CHILD);
+    }
+
+    List<CourseRecord> getCourses() {
+      int first = firstCourseIndex();
+      return new RangeList<>(first, first + modules.get(INT, base + CHILD_COUNT)) {
+        @Override
+        public CourseRecord get(int i) {
+          return course(first + i);
+        }
+      };
+    }
+
+    @Override
+    public long calculatePriceCents() {
+      return modules.get(LONG, base + PRICE);
+    }
+
+    @Override
+    public double calculateDuration() {
+      return modules.get(DOUBLE, base + DURATION);
+    }
+
+    @Override
+    public PurchaseSummary summarize() {
+      int lessonCount = 0;
+      for (CourseRecord course : getCourses()) {
+        lessonCount += courses.get(INT, course.base + CHILD_COUNT);
+      }
+      return new PurchaseSummary(calculatePriceCents(), calculateDuration(), 1, lessonCount);
+    }
+
+    @Override
+    public int getModuleCount() {
+      return 1;
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent, SummaryTape tape) {
+      tape.next(); // Totals are stored, so one slot is recorded and the tree is rendered directly
+      render(out, indent);
+    }
+
+    @Override
+    public void render(StringBuilder out, String indent) {
+      Render.moduleHeader(out, indent, getTitle(), calculatePriceCents(), calculateDuration());
+      List<CourseRecord> children = getCourses();
+      String childIndent = Render.nested(indent);
+      for (int i = 1; i <= children.size(); i++) {
+        Render.childHeading(out, indent, "Course", i);
+        children.get(i-1).render(out, childIndent);
+        Render.separator(out, indent);
+      }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof ModuleRecord record && record.base == base && record.owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(base);
+    }
+
+    private OffHeapCatalogStore owner() {
+      return OffHeapCatalogStore.this;
+    }
+  }
+
+  // Appends records one at a time into growable off-heap buffers, so a catalog can be streamed
+  // in without materializing Module/Course/Lesson objects. Totals of a course are filled in when
+  // the next course or module starts, and module totals when the next module starts.
+  static final class Builder implements CatalogSink {
+    private static final long NO_TITLE = -1; // Empty index slot; offsets and lengths are never negative
+
+    private final Arena arena = Arena.ofShared();
+    private MemorySegment modules = arena.allocate(GROUP_BYTES * 16, 8);
+    private MemorySegment courses = arena.allocate(GROUP_BYTES * 16, 8);
+    private MemorySegment lessons = arena.allocate(LESSON_BYTES * 64, 8);
+    private MemorySegment titles = arena.allocate(1024, 8);
+    private long titleSize;
+    private long[] titleIndex = emptyTitleIndex(1024); // offset << 32 | length of indexed titles
+    private int indexedTitles;
+    private int distinctTitles; // Written to the arena, indexed or not
+    private long titleUses;
+    private long naiveTitleHeapBytes; // What one String per use would have cost
+    private int moduleCount;
+    private int courseCount;
+    private int lessonCount;
+
+    @Override
+    public void startModule(String title) {
+      closeModule();
+      modules = ensureCapacity(modules, (moduleCount + 1) * GROUP_BYTES);
+      long base = moduleCount * GROUP_BYTES;
+      modules.set(INT, base + FIRST_CHILD, courseCount);
+      modules.set(INT, base + CHILD_COUNT, 0);
+      writeTitle(modules, base + GROUP_TITLE_OFFSET, title);
+      moduleCount++;
+    }
+
+    @Override
+    public void startCourse(String title) {
+      if (moduleCount == 0) {
+        throw new IllegalStateException("Course \"" + title + "\" has no module");
+      }
+      closeCourse();
+      courses = ensureCapacity(courses, (courseCount + 1) * GROUP_BYTES);
+      long base = courseCount * GROUP_BYTES;
+      courses.set(INT, base + FIRST_CHILD, lessonCount);
+      courses.set(INT, base + CHILD_COUNT, 0);
+      writeTitle(courses, base + GROUP_TITLE_OFFSET, title);
+      courseCount++;
+      long moduleBase = (moduleCount - 1) * GROUP_BYTES;
+      modules.set(INT, moduleBase + CHILD_COUNT, modules.get(INT, moduleBase + CHILD_COUNT) + 1);
+    }
+
+    @Override
+    public void addLesson(String title, double pricePerHour, double duration) {
+      if (courseCount == 0 || currentModuleCourseCount() == 0) {
+        throw new IllegalStateException("Lesson \"" + title + "\" has no course");
+      }
+      lessons = ensureCapacity(lessons, (lessonCount + 1) * LESSON_BYTES);
+      long base = lessonCount * LESSON_BYTES;
+      lessons.set(LONG, base + PRICE, Money.fromDollars(pricePerHour));
+      lessons.set(DOUBLE, base + DURATION, duration);
+      writeTitle(lessons, base + LESSON_TITLE_OFFSET, title);
+      lessonCount++;
+      long courseBase = (courseCount - 1) * GROUP_BYTES;
+      courses.set(INT, courseBase + CHILD_COUNT, courses.get(INT, courseBase + CHILD_COUNT) + 1);
+    }
+
+    // Copies the records and titles into exact-size segments in the store's own arena and frees
+    // the growth arena, so the store holds its data once rather than every outgrown segment
+    OffHeapCatalogStore build() {
+      closeModule();
+      titleIndex = null;
+      Arena storeArena = Arena.ofShared();
+      try {
+        OffHeapCatalogStore store = new OffHeapCatalogStore(storeArena,
+            copy(storeArena, modules, moduleCount * GROUP_BYTES),
+            copy(storeArena, courses, courseCount * GROUP_BYTES),
+            copy(storeArena, lessons, lessonCount * LESSON_BYTES),
+            copy(storeArena, titles, titleSize));
+        arena.close();
+        return store;
+      } catch (RuntimeException e) {
+        storeArena.close();
+        throw e;
+      }
+    }
+
+    // Frees everything allocated so far, for a build that is abandoned, e.g. on a bad catalog line.
+    // Does nothing after build(), which has freed it already.
+    void abort() {
+      if (arena.scope().isAlive()) {
+        arena.close();
+      }
+    }
+
+    // The dictionary heap figure is the builder's index, the only title memory on the heap
+    TitleDictionary.Report titleReport() {
+      long indexBytes = titleIndex == null ? 0 : 16 + 8L * titleIndex.length;
+      return new TitleDictionary.Report(titleUses, distinctTitles, naiveTitleHeapBytes, indexBytes, titleSize);
+    }
+
+    private int currentModuleCourseCount() {
+      return moduleCount == 0 ? 0 : modules.get(INT, (moduleCount - 1) * GROUP_BYTES + CHILD_COUNT);
+    }
+
+    private void closeCourse() {
+      if (courseCount == 0 || currentModuleCourseCount() == 0) {
+        return; // No open course in the current module
+      }
+      long base = (courseCount - 1) * GROUP_BYTES;
+      int first = courses.get(INT, base + FIRST_CHILD);
+      int count = courses.get(INT, base + CHILD_COUNT);
+      courses.set(LONG, base + PRICE, sumLessonPrices(first, first + count));
+      courses.set(DOUBLE, base + DURATION, sumDoubles(lessons, LESSON_BYTES, DURATION, first, first + count));
+    }
+
+    private void closeModule() {
+      closeCourse();
+      if (moduleCount == 0) {
+        return;
+      }
+      long base = (moduleCount - 1) * GROUP_BYTES;
+      int first = modules.get(INT, base + FIRST_CHILD);
+      int count = modules.get(INT, base + CHILD_COUNT);
+      modules.set(LONG, base + PRICE, sumLongs(courses, GROUP_BYTES, PRICE, first, first + count));
+      modules.set(DOUBLE, base + DURATION, sumDoubles(courses, GROUP_BYTES, DURATION, first, first + count));
+    }
+
+    // Cents are exact, so prices need no particular summation order
+    private long sumLessonPrices(int from, int to) {
+      long sum = 0;
+      for (int i = from; i < to; i++) {
+        long base = i * LESSON_BYTES;
+        sum += Money.lessonPrice(lessons.get(LONG, base + PRICE), lessons.get(DOUBLE, base + DURATION));
+      }
+      return sum;
+    }
+
+    private static long sumLongs(MemorySegment records, long recordBytes, long field, int from, int to) {
+      long sum = 0;
+      for (int i = from; i < to; i++) {
+        sum += records.get(LONG, i * recordBytes + field);
+      }
+      return sum;
+    }
+
+    // Same reduction tree as SummaryAggregator, so durations match the object model exactly
+
+    private static double sumDoubles(MemorySegment records, long recordBytes, long field, int from, int to) {
+      if (to - from <= SummaryAggregator.LEAF_SIZE) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+          sum += records.get(DOUBLE, i * recordBytes + field);
+        }
+        return sum;
+      }
+      int mid = (from + to) >>> 1;
+      return sumDoubles(records, recordBytes, field, from, mid) + sumDoubles(records, recordBytes, field, mid, to);
+    }
+
+    private void writeTitle(MemorySegment records, long fieldOffset, String title) {
+      long entry = encodeTitle(title);
+      records.set(INT, fieldOffset, (int) (entry >>> 32));
+      records.set(INT, fieldOffset + 4, (int) entry);
+    }
+
+    // Offset and length of title's bytes in the arena, written there if the index doesn't have them
+    private long encodeTitle(String title) {
+      titleUses++;
+      naiveTitleHeapBytes += TitleDictionary.estimateStringBytes(title);
+      byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+      int hash = Arrays.hashCode(bytes);
+      int mask = titleIndex.length - 1;
+      int slot = spread(hash) & mask;
+      for (long held = titleIndex[slot]; held != NO_TITLE; held = titleIndex[slot]) {
+        if (sameTitle(held, bytes)) {
+          return held;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (titleSize + bytes.length > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Title arena exceeds " + Integer.MAX_VALUE + " bytes");
+      }
+      titles = ensureCapacity(titles, titleSize + bytes.length);
+      MemorySegment.copy(bytes, 0, titles, ValueLayout.JAVA_BYTE, titleSize, bytes.length);
+      long entry = titleSize << 32 | bytes.length;
+      titleSize += bytes.length;
+      distinctTitles++;
+      if (indexedTitles < MAX_TITLE_INDEX / 2) { // At most half full, so probes stay short
+        titleIndex[slot] = entry;
+        indexedTitles++;
+        if (indexedTitles * 2 > titleIndex.length && titleIndex.length < MAX_TITLE_INDEX) {
+          growTitleIndex();
+        }
+      }
+      return entry;
+    }
+
+    private boolean sameTitle(long entry, byte[] bytes) {
+      long offset = entry >>> 32;
+      return (int) entry == bytes.length
+          && MemorySegment.mismatch(titles, offset, offset + bytes.length, MemorySegment.ofArray(bytes), 0, bytes.length) == -1;
+    }
+
+    private void growTitleIndex() {
+      long[] grown = emptyTitleIndex(titleIndex.length * 2);
+      int mask = grown.length - 1;
+      for (long entry : titleIndex) {
+        if (entry != NO_TITLE) {
+          byte[] bytes = titles.asSlice(entry >>> 32, (int) entry).toArray(ValueLayout.JAVA_BYTE);
+          int slot = spread(Arrays.hashCode(bytes)) & mask;
+          while (grown[slot] != NO_TITLE) {
+            slot = (slot + 1) & mask;
+          }
+          grown[slot] = entry;
+        }
+      }
+      titleIndex = grown;
+    }
+
+    private static long[] emptyTitleIndex(int slots) {
+      long[] index = new long[slots];
+      Arrays.fill(index, NO_TITLE);
+      return index;
+    }
+
+    // Mixes the high bits of Arrays.hashCode into the low bits used for the slot
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+
+    // Doubles the segment until it holds needed bytes. Outgrown segments stay allocated until the
+    // growth arena closes in build(), so while building a segment's memory can reach about four
+    // times its data: a current segment up to twice the data, and its predecessors together less.
+    private static MemorySegment copy(Arena target, MemorySegment segment, long bytes) {
+      MemorySegment exact = target.allocate(Math.max(1, bytes), 8).asSlice(0, bytes);
+      MemorySegment.copy(segment, 0, exact, 0, bytes);
+      return exact;
+    }
+
+    private MemorySegment ensureCapacity(MemorySegment segment, long needed) {
+      if (needed <= segment.byteSize()) {
+        return segment;
+      }
+      long capacity = segment.byteSize();
+      while (capacity < needed) {
+        capacity *= 2;
+      }
+      MemorySegment grown = arena.allocate(capacity, 8);
+      MemorySegment.copy(segment, 0, grown, 0, segment.byteSize());
+      return grown;
+    }
+  }
+}
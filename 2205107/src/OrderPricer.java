@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Prices orders given as catalog IDs, for callers without an interactive cart such as batch
+// checkout and the HTTP service. Items are looked up by catalog ID and priced with the same
+// add-on decorators and discount chain as the console checkout.
+//
+// A pricer reads one CatalogVersions.Version for its whole life, so every item it prices comes
+// from the same catalog. Versions never change, so any number of threads can price orders at
+// the same time, including while newer versions are published.
+final class OrderPricer {
+  private final CatalogVersions.Version catalog;
+
+  // For a catalog that nobody changes, e.g. batch checkout
+  OrderPricer(List<Module> catalog) {
+    this(new CatalogVersions(catalog).current());
+  }
+
+  OrderPricer(CatalogVersions.Version catalog) {
+    this.catalog = catalog;
+  }
+
+  // "<id>" or "<id>+P+M": a catalog ID with optional Practice Question Set and Live Mentor Support
+  // add-ons, which are only sold with modules
+  Purchasable item(String field) {
+    String[] parts = field.trim().split("\\+", -1);
+    int id;
+    try {
+      id = Integer.parseInt(parts[0].trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("item \"" + field.trim() + "\" is not a catalog ID");
+    }
+    Purchasable item = catalog.get(id);
+    if (parts.length > 1 && !(item instanceof Module)) {
+      throw new IllegalArgumentException("add-ons are only sold with modules (item " + id + ")");
+    }
+    for (int p = 1; p < parts.length; p++) {
+      item = switch (parts[p].trim()) {
+        case "P" -> new PracticeQuestionSetDecorator(item);
+        case "M" -> new LiveMentorSupportDecorator(item);
+        default -> throw new IllegalArgumentException("unknown add-on \"" + parts[p].trim() + "\"");
+      };
+    }
+    return item;
+  }
+
+  // Items from fields [from, fields.size())
+  List<Purchasable> items(List<String> fields, int from) {
+    if (from >= fields.size()) {
+      throw new IllegalArgumentException("an order needs at least one item");
+    }
+    List<Purchasable> items = new ArrayList<>(fields.size() - from);
+    for (int f = from; f < fields.size(); f++) {
+      items.add(item(fields.get(f)));
+    }
+    return items;
+  }
+
+  PriceBreakdown price(List<Purchasable> items, Customer customer) {
+    List<PriceBreakdown.LineItem> lineItems = new ArrayList<>(items.size());
+    PurchaseSummary subtotal = PurchaseSummary.EMPTY;
+    for (Purchasable item : items) {
+      PurchaseSummary summary = item.summarize();
+      lineItems.add(new PriceBreakdown.LineItem(item, summary));
+      subtotal = subtotal.plus(summary);
+    }
+    Purchasable checkout = CartDecorator.checkoutDiscounts(new Cart(items), customer);
+    return DiscountProgram.compile(checkout).evaluate(lineItems, subtotal);
+  }
+
+  // Prices a cart from its running totals, as the console checkout does
+  static PriceBreakdown price(CartService.Snapshot cart, Customer customer) {
+    Purchasable checkout = CartDecorator.checkoutDiscounts(cart.toCart(), customer);
+    return DiscountProgram.compile(checkout).evaluate(cart.getLineItems(), cart.getTotals());
+  }
+
+  // yes/y or no/n, any case, as accepted by the console
+  static boolean flag(String field, String name) {
+    String value = field.trim();
+    if (value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("y")) {
+      return true;
+    }
+    if (value.equalsIgnoreCase("no") || value.equalsIgnoreCase("n")) {
+      return false;
+    }
+    throw new IllegalArgumentException(name + " flag \"" + value + "\" is not yes or no");
+  }
+
+  // "<subtotal>,<discounts>,<final price>,<applied discounts separated by ;>"
+  static StringBuilder appendResult(StringBuilder out, PriceBreakdown breakdown) {
+    MoneyFormat.appendCents(out, breakdown.getSubtotal().getPriceCents()).append(',');
+    MoneyFormat.appendCents(out, breakdown.getSavingsCents()).append(',');
+    MoneyFormat.appendCents(out, breakdown.getFinalPriceCents()).append(',');
+    StringBuilder applied = new StringBuilder();
+    for (DiscountRule rule : breakdown.getAppliedDiscounts()) {
+      if (applied.length() > 0) {
+        applied.append(';');
+      }
+      applied.append(rule.getName());
+    }
+    return appendField(out, applied);
+  }
+
+  // Appends a CSV field, quoting it only when it needs it
+  static StringBuilder appendField(StringBuilder out, CharSequence field) {
+    boolean plain = true;
+    for (int i = 0; i < field.length() && plain; i++) {
+      char c = field.charAt(i);
+      plain = c != ',' && c != '"' && c != '\n' && c != '\r';
+    }
+    if (plain) {
+      return out.append(field);
+    }
+    out.append('"');
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      out.append(c);
+      if (c == '"') {
+        out.append('"');
+      }
+    }
+    return out.append('"');
+  }
+}
@@ -0,0 +1,226 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// An immutable list whose "modified copies" share almost all of their structure with the original,
+// used for catalog versions; cart lines use RankedList, which also removes cheaply. Elements live
+// in a trie of 32-wide arrays plus a tail array holding the last 1-32 elements, as in Clojure's
+// vector: get is a walk of at most a few levels, and plus, with and minusLast copy only the tail
+// or one root-to-leaf path, so every version stays valid and a snapshot is just a reference.
+// Removing from the middle shares the leaves before the element and copies the ones after it.
+final class PersistentList<T> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final Object[] NO_NODES = new Object[0];
+  private static final PersistentList<?> EMPTY = new PersistentList<>(0, BITS, NO_NODES, NO_NODES);
+
+  private final int size;
+  private final int shift; // Bits of the index consumed above the leaves
+  private final Object[] root; // Interior nodes hold child arrays; leaves hold elements
+  private final Object[] tail;
+  private final List<T> view = new View();
+
+  private PersistentList(int size, int shift, Object[] root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> PersistentList<T> empty() {
+    return (PersistentList<T>) EMPTY;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  T get(int index) {
+    Objects.checkIndex(index, size);
+    return (T) leafFor(index)[index & MASK];
+  }
+
+  // This list with element appended
+  PersistentList<T> plus(T element) {
+    if (size - tailOffset() < WIDTH) {
+      Object[] nextTail = Arrays.copyOf(tail, tail.length + 1);
+      nextTail[tail.length] = element;
+      return new PersistentList<>(size + 1, shift, root, nextTail);
+    }
+    return pushedTail(new Object[] {element});
+  }
+
+  // This list with the element at index replaced
+  PersistentList<T> with(int index, T element) {
+    Objects.checkIndex(index, size);
+    if (index >= tailOffset()) {
+      Object[] nextTail = tail.clone();
+      nextTail[index & MASK] = element;
+      return new PersistentList<>(size, shift, root, nextTail);
+    }
+    return new PersistentList<>(size, shift, replaced(shift, root, index, element), tail);
+  }
+
+  // This list without its last element
+  PersistentList<T> minusLast() {
+    if (size == 0) {
+      throw new IllegalStateException("The list is empty");
+    }
+    if (size == 1) {
+      return empty();
+    }
+    if (size - tailOffset() > 1) {
+      return new PersistentList<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+    }
+    // The tail empties: the trie's last leaf becomes the new tail
+    Object[] nextTail = leafFor(size - 2);
+    Object[] nextRoot = popTail(shift, root);
+    int nextShift = shift;
+    if (nextRoot == null) {
+      nextRoot = NO_NODES;
+    } else if (shift > BITS && nextRoot.length == 1) {
+      nextRoot = (Object[]) nextRoot[0];
+      nextShift -= BITS;
+    }
+    return new PersistentList<>(size - 1, nextShift, nextRoot, nextTail);
+  }
+
+  // This list without the element at index. Leaves before the one holding index are shared and
+  // the elements after it are copied, so this costs O(size - index).
+  PersistentList<T> minus(int index) {
+    Objects.checkIndex(index, size);
+    int tailOffset = tailOffset();
+    if (index == size - 1) {
+      return minusLast();
+    }
+    if (index >= tailOffset) {
+      Object[] nextTail = new Object[tail.length - 1];
+      System.arraycopy(tail, 0, nextTail, 0, index - tailOffset);
+      System.arraycopy(tail, index - tailOffset + 1, nextTail, index - tailOffset, nextTail.length - (index - tailOffset));
+      return new PersistentList<>(size - 1, shift, root, nextTail);
+    }
+    int start = index & ~MASK; // First element of the leaf holding index
+    PersistentList<T> result = empty();
+    for (int from = 0; from < start; from += WIDTH) {
+      result = result.withLeaf(leafFor(from));
+    }
+    Object[] leaf = new Object[WIDTH];
+    int filled = 0;
+    for (int i = start; i < size; i++) {
+      if (i != index) {
+        leaf[filled++] = leafFor(i)[i & MASK];
+      }
+      if (filled == WIDTH) {
+        result = result.withLeaf(leaf);
+        leaf = new Object[WIDTH];
+        filled = 0;
+      }
+    }
+    return filled == 0 ? result : result.withLeaf(Arrays.copyOf(leaf, filled));
+  }
+
+  // Read-only RandomAccess view; never changes, as the list never does
+  List<T> asList() {
+    return view;
+  }
+
+  // Index of the first element held in the tail
+  private int tailOffset() {
+    return size <= WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  private Object[] leafFor(int index) {
+    if (index >= tailOffset()) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return node;
+  }
+
+  // Moves the full tail into the trie and starts nextTail
+  private PersistentList<T> pushedTail(Object[] nextTail) {
+    Object[] nextRoot;
+    int nextShift = shift;
+    if ((size >>> BITS) > (1 << shift)) {
+      nextRoot = new Object[] {root, path(shift, tail)};
+      nextShift += BITS;
+    } else {
+      nextRoot = pushTail(shift, root);
+    }
+    return new PersistentList<>(size + nextTail.length, nextShift, nextRoot, nextTail);
+  }
+
+  // Appends a leaf of elements, used when building in bulk; the tail must be full or empty
+  private PersistentList<T> withLeaf(Object[] leaf) {
+    return size == 0 ? new PersistentList<>(leaf.length, BITS, NO_NODES, leaf) : pushedTail(leaf);
+  }
+
+  // Copies the path to the rightmost leaf with the full tail added as a new leaf
+  private Object[] pushTail(int level, Object[] parent) {
+    int child = ((size - 1) >>> level) & MASK;
+    Object[] copy = Arrays.copyOf(parent, Math.max(parent.length, child + 1));
+    if (level == BITS) {
+      copy[child] = tail;
+    } else if (child < parent.length) {
+      copy[child] = pushTail(level - BITS, (Object[]) parent[child]);
+    } else {
+      copy[child] = path(level - BITS, tail);
+    }
+    return copy;
+  }
+
+  // Copies the path to the rightmost leaf with that leaf dropped; null if nothing is left
+  private Object[] popTail(int level, Object[] node) {
+    int child = ((size - 2) >>> level) & MASK;
+    if (level > BITS) {
+      Object[] next = popTail(level - BITS, (Object[]) node[child]);
+      if (next == null) {
+        return child == 0 ? null : Arrays.copyOf(node, child);
+      }
+      Object[] copy = Arrays.copyOf(node, child + 1);
+      copy[child] = next;
+      return copy;
+    }
+    return child == 0 ? null : Arrays.copyOf(node, child);
+  }
+
+  // Copies the path to index with the element there replaced
+  private static Object[] replaced(int level, Object[] node, int index, Object element) {
+    Object[] copy = node.clone();
+    if (level == 0) {
+      copy[index & MASK] = element;
+    } else {
+      int child = (index >>> level) & MASK;
+      copy[child] = replaced(level - BITS, (Object[]) node[child], index, element);
+    }
+    return copy;
+  }
+
+  private static Object[] path(int level, Object[] leaf) {
+    return level == 0 ? leaf : new Object[] {path(level - BITS, leaf)};
+  }
+
+  private final class View extends AbstractList<T> implements RandomAccess {
+    @Override
+    public T get(int index) {
+      return PersistentList.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -1,20 +1,6 @@
 public class PracticeQuestionSetDecorator extends AddOnDecorator {
-  private static final double PRICE = 10.0;
-
   public PracticeQuestionSetDecorator(Purchasable purchasable) {
-    super(purchasable);
-  }
-
-  @Override
-  public double calculatePrice() {
-    return super.calculatePrice() + PRICE;
-  }
-
-  @Override
-  public void printDetails(String indent) {
-    super.printDetails(indent);
-    System.out.println(indent + String.format("Add-On: Practice Question Set"));
-    System.out.println(indent + String.format("Price: $%.2f", PRICE));
+    super(purchasable, AddOn.PRACTICE_QUESTION_SET);
   }
 
   @Override
@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Result of evaluating a DiscountProgram: what was bought, what it cost before discounts,
+// which discounts applied and the final price.
+class PriceBreakdown {
+  static class LineItem {
+    private final Purchasable item;
+    private final PurchaseSummary summary;
+
+    LineItem(Purchasable item, PurchaseSummary summary) {
+      this.item = item;
+      this.summary = summary;
+    }
+
+    Purchasable getItem() {
+      return item;
+    }
+
+    PurchaseSummary getSummary() {
+      return summary;
+    }
+  }
+
+  private final List<LineItem> lineItems;
+  private final PurchaseSummary subtotal;
+  private final List<DiscountRule> appliedDiscounts; // Order they were applied in
+  private final List<DiscountRule> receiptDiscounts; // Same rules in DiscountRule.RECEIPT_ORDER
+  private final long finalPriceCents;
+
+  PriceBreakdown(List<LineItem> lineItems, PurchaseSummary subtotal, List<DiscountRule> appliedDiscounts,
+      long finalPriceCents) {
+    this.lineItems = Collections.unmodifiableList(lineItems);
+    this.subtotal = subtotal;
+    this.appliedDiscounts = Collections.unmodifiableList(appliedDiscounts);
+    List<DiscountRule> receipt = new ArrayList<>(appliedDiscounts);
+    receipt.sort(DiscountRule.RECEIPT_ORDER); // Stable
+    this.receiptDiscounts = Collections.unmodifiableList(receipt);
+    this.finalPriceCents = finalPriceCents;
+  }
+
+  List<LineItem> getLineItems() {
+    return lineItems;
+  }
+
+  PurchaseSummary getSubtotal() {
+    return subtotal;
+  }
+
+  List<DiscountRule> getAppliedDiscounts() {
+    return appliedDiscounts;
+  }
+
+  List<DiscountRule> getReceiptDiscounts() {
+    return receiptDiscounts;
+  }
+
+  long getFinalPriceCents() {
+    return finalPriceCents;
+  }
+
+  double getFinalPrice() {
+    return Money.toDollars(finalPriceCents);
+  }
+
+  long getSavingsCents() {
+    return subtotal.getPriceCents() - finalPriceCents;
+  }
+
+  double getSavings() {
+    return Money.toDollars(getSavingsCents());
+  }
+}
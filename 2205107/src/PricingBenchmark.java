@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Times sequential against fork/join summation of carts of increasing size and reports the
+// smallest size at which the parallel mode wins. Run with: java PricingBenchmark
+public class PricingBenchmark {
+  private static final int[] CART_SIZES = {1_024, 4_096, 16_384, 65_536, 262_144, 1_048_576};
+  private static final int WARMUP_ROUNDS = 5;
+  private static final long MIN_MEASURE_NANOS = 200_000_000L;
+
+  public static void main(String[] args) {
+    System.out.println("=".repeat(80));
+    System.out.println("CART PRICING: SEQUENTIAL VS FORK/JOIN");
+    System.out.println("Parallelism: " + ForkJoinPool.commonPool().getParallelism()
+        + " (leaf size " + SummaryAggregator.LEAF_SIZE + ")");
+    System.out.println("=".repeat(80));
+    System.out.println(String.format("%10s %16s %16s %10s %10s", "items", "sequential us", "parallel us", "speedup", "identical"));
+
+    int crossover = -1; // Smallest size from which every larger size also wins
+    for (int size : CART_SIZES) {
+      List<Purchasable> items = randomLessons(size, new Random(size));
+
+      PurchaseSummary sequential = SummaryAggregator.sum(items, false);
+      PurchaseSummary parallel = SummaryAggregator.sum(items, true);
+      boolean identical = Double.doubleToLongBits(sequential.getPrice()) == Double.doubleToLongBits(parallel.getPrice())
+          && Double.doubleToLongBits(sequential.getDuration()) == Double.doubleToLongBits(parallel.getDuration());
+
+      double sequentialMicros = time(items, false);
+      double parallelMicros = time(items, true);
+      double speedup = sequentialMicros / parallelMicros;
+      if (speedup > 1.0) {
+        crossover = crossover < 0 ? size : crossover;
+      } else {
+        crossover = -1;
+      }
+      System.out.println(String.format("%10d %16.1f %16.1f %9.2fx %10s",
+          size, sequentialMicros, parallelMicros, speedup, identical ? "yes" : "NO"));
+    }
+
+    System.out.println("-".repeat(80));
+    System.out.println(crossover < 0
+        ? "Parallel mode did not win at any measured size"
+        : "Parallel mode wins from about " + crossover + " items; pass parallel = true from that size");
+  }
+
+  private static List<Purchasable> randomLessons(int count, Random random) {
+    List<Purchasable> items = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      items.add(new Lesson("Lesson " + i, 5 + random.nextInt(4_000) / 100.0, 0.25 + random.nextInt(16) * 0.25));
+    }
+    return items;
+  }
+
+  // Average microseconds per summation after warm-up
+  private static double time(List<Purchasable> items, boolean parallel) {
+    double sink = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += SummaryAggregator.sum(items, parallel).getPrice();
+    }
+    int rounds = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      sink += SummaryAggregator.sum(items, parallel).getPrice();
+      rounds++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < MIN_MEASURE_NANOS);
+    if (sink == 42) {
+      System.out.println(); // Keeps the JIT from discarding the work
+    }
+    return elapsed / 1_000.0 / rounds;
+  }
+}
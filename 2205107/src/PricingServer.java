@@ -0,0 +1,415 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HTTP front end over the catalog, for the web tier. Each request runs on its own virtual thread
+// and prices through OrderPricer, so quotes match the console and batch checkout.
+//
+//   GET  /catalog                  modules as CSV: id,type,title,price,hours
+//   GET  /catalog?parent=<id>      the courses of a module or the lessons of a course, same columns
+//   GET  /catalog/<id>             rendered details of one item
+//   PUT  /catalog/<id>?rate=<per hour>&hours=<hours>
+//                                  reprices a lesson; replies with its new row, same columns
+//   GET  /quote?items=9+P,0[&student=y][&developing=y]
+//                                  CSV header and one line: subtotal,discounts,final,detail
+//   POST /checkout                 body "<name>,<student y/n>,<developing y/n>,<item>[,<item>...]";
+//                                  replies with the receipt the console prints
+//
+// Shoppers can also keep a cart between requests. Carts live in a SessionRegistry and expire
+// when idle:
+//
+//   POST   /cart                   starts a session; replies 201 with its ID
+//   GET    /cart/<id>[?student=y][&developing=y]
+//                                  quote for the cart, same format as /quote
+//   POST   /cart/<id>/items?items=9+P,0
+//                                  adds items and replies with the new quote; 400 if the cart
+//                                  would then hold more than MAX_CART_ITEMS
+//   DELETE /cart/<id>/items/<n>    removes the nth item (from 1) and replies with the new quote
+//   POST   /cart/<id>/checkout     body "<name>,<student y/n>,<developing y/n>"; replies with the
+//                                  receipt and empties the cart
+//   DELETE /cart/<id>              ends the session
+//
+// The catalog is kept as CatalogVersions. Each request pins the current version, so a listing or
+// quote sees one consistent catalog while prices change; items already in a cart keep the prices
+// of the version they were added from.
+//
+// Items use OrderPricer's syntax. In query strings a + is an add-on marker, not a space. Bad
+// input gets 400 with a one-line message, unknown paths 404 and wrong methods 405. A handler
+// that fails unexpectedly gets 500, so the client is never left waiting for a reply.
+final class PricingServer implements AutoCloseable {
+  static final String QUOTE_HEADER = "subtotal,discounts,final,detail";
+  static final String CATALOG_HEADER = "id,type,title,price,hours";
+  private static final int MAX_BODY_BYTES = 64 * 1024;
+  static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
+  static final int MAX_SESSIONS = 500_000;
+  static final int MAX_CART_ITEMS = 1_000; // With MAX_SESSIONS, caps what carts can hold in total
+  private static final int BACKLOG = 4096; // Pending connections, so bursts of clients are queued rather than refused
+
+  private final CatalogVersions catalog;
+  private final SessionRegistry sessions;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  // The server takes over the catalog; change it through getCatalog(). Port 0 picks a free port.
+  PricingServer(List<Module> catalog, InetSocketAddress address) throws IOException {
+    this(catalog, address, SessionRegistry.start(SESSION_IDLE_TIMEOUT, Duration.ofSeconds(1), MAX_SESSIONS));
+  }
+
+  // Takes ownership of sessions and closes it with the server
+  PricingServer(List<Module> catalog, InetSocketAddress address, SessionRegistry sessions) throws IOException {
+    this.catalog = new CatalogVersions(catalog);
+    this.sessions = sessions;
+    this.server = HttpServer.create(address, BACKLOG);
+    server.createContext("/catalog", guarded(this::catalog));
+    server.createContext("/quote", guarded(this::quote));
+    server.createContext("/checkout", guarded(this::checkout));
+    server.createContext("/cart", guarded(this::cart));
+    server.setExecutor(executor);
+  }
+
+  void start() {
+    server.start();
+  }
+
+  InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  CatalogVersions getCatalog() {
+    return catalog;
+  }
+
+  // Stops accepting, gives in-flight exchanges a second to finish and waits for their threads
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.close();
+    sessions.close();
+  }
+
+  // Replies 500 when handler throws unexpectedly. If the reply was already under way it can't be
+  // changed, so the exchange is just closed.
+  private static HttpHandler guarded(HttpHandler handler) {
+    return exchange -> {
+      try {
+        handler.handle(exchange);
+      } catch (RuntimeException e) {
+        if (exchange.getResponseCode() == -1) {
+          send(exchange, 500, "text/plain", "Internal error");
+        } else {
+          exchange.close();
+        }
+      }
+    };
+  }
+
+  private void catalog(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    boolean listing = path.equals("/catalog") || path.equals("/catalog/");
+    if (!listing && exchange.getRequestMethod().equals("PUT")) {
+      reprice(exchange, path.substring("/catalog/".length()));
+      return;
+    }
+    if (!requireMethod(exchange, "GET")) {
+      return;
+    }
+    Map<String, String> query = query(exchange);
+    CatalogVersions.Version version = catalog.current();
+    try {
+      if (listing) {
+        StringBuilder out = new StringBuilder(CATALOG_HEADER).append('\n');
+        String parent = query.get("parent");
+        for (Purchasable child : parent == null ? version.getModules() : children(catalogItem(version, parent))) {
+          appendRow(out, child);
+        }
+        send(exchange, 200, "text/csv", out);
+        return;
+      }
+      Purchasable item = catalogItem(version, path.substring("/catalog/".length()));
+      send(exchange, 200, "text/plain", Render.toString(item, ""));
+    } catch (IllegalArgumentException e) {
+      send(exchange, 404, "text/plain", e.getMessage());
+    }
+  }
+
+  private void reprice(HttpExchange exchange, String id) throws IOException {
+    Map<String, String> query = query(exchange);
+    double rate;
+    double hours;
+    try {
+      rate = amount(query, "rate", Double.NaN); // NaN keeps the lesson's own value
+      hours = amount(query, "hours", Double.NaN);
+    } catch (IllegalArgumentException e) {
+      send(exchange, 400, "text/plain", e.getMessage());
+      return;
+    }
+    CatalogVersions.Version version;
+    int lessonId;
+    try {
+      lessonId = catalogId(id);
+      // Read and replaced in one step, so a concurrent change or removal can't slip in between
+      version = catalog.updateLesson(lessonId, lesson -> new Lesson(lesson.getTitle(),
+          Double.isNaN(rate) ? lesson.getPricePerHour() : rate,
+          Double.isNaN(hours) ? lesson.calculateDuration() : hours));
+    } catch (IllegalArgumentException e) {
+      send(exchange, 404, "text/plain", e.getMessage());
+      return;
+    }
+    StringBuilder out = new StringBuilder(CATALOG_HEADER).append('\n');
+    appendRow(out, version.get(lessonId));
+    send(exchange, 200, "text/csv", out);
+  }
+
+  private void quote(HttpExchange exchange) throws IOException {
+    if (!requireMethod(exchange, "GET")) {
+      return;
+    }
+    Map<String, String> query = query(exchange);
+    try {
+      String items = query.get("items");
+      if (items == null || items.isBlank()) {
+        throw new IllegalArgumentException("items is required, e.g. items=9+P,0");
+      }
+      Customer customer = queryCustomer(query);
+      List<String> fields = List.of(items.split(",", -1));
+      OrderPricer pricer = new OrderPricer(catalog.current());
+      PriceBreakdown breakdown = pricer.price(pricer.items(fields, 0), customer);
+      StringBuilder out = new StringBuilder(QUOTE_HEADER).append('\n');
+      OrderPricer.appendResult(out, breakdown).append('\n');
+      send(exchange, 200, "text/csv", out);
+    } catch (IllegalArgumentException e) {
+      send(exchange, 400, "text/plain", e.getMessage());
+    }
+  }
+
+  private void checkout(HttpExchange exchange) throws IOException {
+    if (!requireMethod(exchange, "POST")) {
+      return;
+    }
+    try {
+      List<String> fields = new ArrayList<>();
+      CatalogLoader.split(readBody(exchange), 1, fields);
+      if (fields.size() < 4) {
+        throw new IllegalArgumentException("an order is <name>,<student y/n>,<developing y/n>,<item>[,<item>...]");
+      }
+      Customer customer = new Customer(fields.get(0).trim(),
+          OrderPricer.flag(fields.get(2), "developing country"),
+          OrderPricer.flag(fields.get(1), "student"));
+      OrderPricer pricer = new OrderPricer(catalog.current());
+      PriceBreakdown breakdown = pricer.price(pricer.items(fields, 3), customer);
+      StringBuilder out = new StringBuilder(2048);
+      Render.receipt(out, customer, breakdown);
+      send(exchange, 200, "text/plain", out);
+    } catch (CatalogFormatException | IllegalArgumentException e) {
+      send(exchange, 400, "text/plain", e.getMessage());
+    }
+  }
+
+  private void cart(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    String[] path = exchange.getRequestURI().getPath().split("/"); // "", "cart", id, ...
+    if (path.length == 2) {
+      if (requireMethod(exchange, "POST")) {
+        send(exchange, 201, "text/plain", sessions.create().getId());
+      }
+      return;
+    }
+    SessionRegistry.Session session = sessions.get(path[2]);
+    if (session == null) {
+      send(exchange, 404, "text/plain", "No session " + path[2]);
+      return;
+    }
+    Map<String, String> query = query(exchange);
+    CartService cart = session.getCart();
+    try {
+      if (path.length == 3) {
+        if (method.equals("DELETE")) {
+          sessions.remove(session.getId());
+          send(exchange, 200, "text/plain", "Session ended");
+        } else if (requireMethod(exchange, "GET")) {
+          sendQuote(exchange, session, queryCustomer(query));
+        }
+      } else if (path[3].equals("items") && path.length == 4) {
+        if (requireMethod(exchange, "POST")) {
+          String items = query.getOrDefault("items", "");
+          OrderPricer pricer = new OrderPricer(catalog.current());
+          if (!cart.addItems(pricer.items(List.of(items.split(",", -1)), 0), MAX_CART_ITEMS)) {
+            throw new IllegalArgumentException("a cart holds at most " + MAX_CART_ITEMS + " items");
+          }
+          sendQuote(exchange, session, queryCustomer(query));
+        }
+      } else if (path[3].equals("items") && path.length == 5) {
+        if (requireMethod(exchange, "DELETE")) {
+          int number = Integer.parseInt(path[4]);
+          try {
+            cart.removeAt(number - 1);
+          } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("the cart has no item " + number);
+          }
+          sendQuote(exchange, session, queryCustomer(query));
+        }
+      } else if (path[3].equals("checkout") && path.length == 4) {
+        if (requireMethod(exchange, "POST")) {
+          List<String> fields = new ArrayList<>();
+          CatalogLoader.split(readBody(exchange), 1, fields);
+          if (fields.size() != 3) {
+            throw new IllegalArgumentException("checkout needs <name>,<student y/n>,<developing y/n>");
+          }
+          Customer customer = new Customer(fields.get(0).trim(),
+              OrderPricer.flag(fields.get(2), "developing country"),
+              OrderPricer.flag(fields.get(1), "student"));
+          CartService.Snapshot order = cart.drain();
+          if (order.isEmpty()) {
+            throw new IllegalArgumentException("the cart is empty");
+          }
+          session.setCustomer(customer);
+          StringBuilder out = new StringBuilder(2048);
+          Render.receipt(out, customer, OrderPricer.price(order, customer));
+          send(exchange, 200, "text/plain", out);
+        }
+      } else {
+        send(exchange, 404, "text/plain", "Unknown cart path");
+      }
+    } catch (CatalogFormatException | IllegalArgumentException e) {
+      send(exchange, 400, "text/plain", e.getMessage());
+    }
+  }
+
+  private static void sendQuote(HttpExchange exchange, SessionRegistry.Session session, Customer customer)
+      throws IOException {
+    StringBuilder out = new StringBuilder(QUOTE_HEADER).append('\n');
+    OrderPricer.appendResult(out, OrderPricer.price(session.getCart().snapshot(), customer)).append('\n');
+    send(exchange, 200, "text/csv", out);
+  }
+
+  private static Customer queryCustomer(Map<String, String> query) {
+    return new Customer("",
+        OrderPricer.flag(query.getOrDefault("developing", "n"), "developing country"),
+        OrderPricer.flag(query.getOrDefault("student", "n"), "student"));
+  }
+
+  private static List<? extends Purchasable> children(Purchasable item) {
+    if (item instanceof Module module) {
+      return module.getCourses();
+    }
+    if (item instanceof Course course) {
+      return course.getLessons();
+    }
+    return List.of();
+  }
+
+  private static Purchasable catalogItem(CatalogVersions.Version version, String id) {
+    return version.get(catalogId(id));
+  }
+
+  private static int catalogId(String id) {
+    try {
+      return Integer.parseInt(id.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("\"" + id + "\" is not a catalog ID");
+    }
+  }
+
+  // A non-negative amount from the query, or fallback when the parameter is absent
+  private static double amount(Map<String, String> query, String name, double fallback) {
+    String value = query.get(name);
+    if (value == null) {
+      return fallback;
+    }
+    try {
+      double amount = Double.parseDouble(value.trim());
+      if (amount >= 0 && Double.isFinite(amount)) {
+        return amount;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException(name + " \"" + value + "\" is not a non-negative number");
+  }
+
+  private static void appendRow(StringBuilder out, Purchasable item) {
+    String type;
+    String title;
+    if (item instanceof Module module) {
+      type = "module";
+      title = module.getTitle();
+    } else if (item instanceof Course course) {
+      type = "course";
+      title = course.getTitle();
+    } else {
+      type = "lesson";
+      title = ((Lesson) item).getTitle();
+    }
+    PurchaseSummary summary = item.summarize();
+    out.append(CatalogRegistry.idOf(item)).append(',').append(type).append(',');
+    OrderPricer.appendField(out, title).append(',');
+    MoneyFormat.appendCents(out, summary.getPriceCents()).append(',');
+    MoneyFormat.appendFixed2(out, summary.getDuration()).append('\n');
+  }
+
+  // Decoded query parameters; a + stays a +
+  private static Map<String, String> query(HttpExchange exchange) {
+    Map<String, String> params = new HashMap<>();
+    String raw = exchange.getRequestURI().getRawQuery();
+    if (raw == null) {
+      return params;
+    }
+    for (String pair : raw.split("&")) {
+      int eq = pair.indexOf('=');
+      String name = eq < 0 ? pair : pair.substring(0, eq);
+      String value = eq < 0 ? "" : pair.substring(eq + 1);
+      params.put(decode(name), decode(value));
+    }
+    return params;
+  }
+
+  private static String decode(String text) {
+    try {
+      return URLDecoder.decode(text.replace("+", "%2B"), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      return text; // Malformed escapes are passed through and rejected by the handler
+    }
+  }
+
+  private static String readBody(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+      if (bytes.length > MAX_BODY_BYTES) {
+        throw new IllegalArgumentException("request body is larger than " + MAX_BODY_BYTES + " bytes");
+      }
+      return new String(bytes, StandardCharsets.UTF_8).strip();
+    }
+  }
+
+  private static boolean requireMethod(HttpExchange exchange, String method) throws IOException {
+    if (exchange.getRequestMethod().equals(method)) {
+      return true;
+    }
+    exchange.getResponseHeaders().set("Allow", method);
+    send(exchange, 405, "text/plain", "Use " + method);
+    return false;
+  }
+
+  private static void send(HttpExchange exchange, int status, String contentType, CharSequence body)
+      throws IOException {
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load test for PricingServer on loopback: each round fires a burst of concurrent quote requests,
+// one virtual thread per client, and reports throughput and latency percentiles. Every reply is
+// checked against a single quote taken up front. Run with: java PricingServerBenchmark [clients]
+public class PricingServerBenchmark {
+  private static final int DEFAULT_CLIENTS = 5_000;
+  private static final int WARMUP_ROUNDS = 2;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    try (PricingServer server = new PricingServer(catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      server.start();
+      URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/quote?items="
+          + catalog.get(0).getCatalogId() + "+P+M," + catalog.get(1).getCatalogId() + "&student=y&developing=y");
+      HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      String expected = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()).body();
+
+      System.out.println("=".repeat(80));
+      System.out.println("PRICING SERVER LOAD: " + clients + " CONCURRENT QUOTES PER ROUND");
+      System.out.println("=".repeat(80));
+      for (int round = 1; round <= WARMUP_ROUNDS + ROUNDS; round++) {
+        long[] latencies = new long[clients];
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+          for (int i = 0; i < clients; i++) {
+            int slot = i;
+            pool.submit(() -> {
+              long sent = System.nanoTime();
+              try {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200 || !response.body().equals(expected)) {
+                  failures.incrementAndGet();
+                }
+              } catch (IOException | InterruptedException e) {
+                failures.incrementAndGet();
+              }
+              latencies[slot] = System.nanoTime() - sent;
+            });
+          }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (round <= WARMUP_ROUNDS) {
+          continue;
+        }
+        Arrays.sort(latencies);
+        System.out.println(String.format("Round %d: %8.0f req/s  p50 %6.1f ms  p99 %6.1f ms  max %6.1f ms  failed %d",
+            round - WARMUP_ROUNDS, clients / (elapsed / 1e9), percentile(latencies, 0.50), percentile(latencies, 0.99),
+            latencies[latencies.length - 1] / 1e6, failures.get()));
+      }
+    }
+  }
+
+  private static double percentile(long[] sorted, double fraction) {
+    return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+  }
+}
@@ -1,9 +1,38 @@
 public interface Purchasable {
-  double calculatePrice();
+  long calculatePriceCents(); // Exact price in cents, see Money
+
+  default double calculatePrice() {
+    return Money.toDollars(calculatePriceCents());
+  }
 
   double calculateDuration(); // in hours
 
-  void printDetails(String indent);
+  // Appends this item's detail lines to out, each line starting with indent. Totals for the whole
+  // tree are gathered first in one post-order pass, then read back while rendering in pre-order.
+  default void render(StringBuilder out, String indent) {
+    SummaryTape tape = new SummaryTape();
+    record(tape);
+    render(out, indent, tape);
+  }
+
+  // Reserves this item's slot, records its children, then fills the slot with its totals
+  default PurchaseSummary record(SummaryTape tape) {
+    int slot = tape.reserve();
+    PurchaseSummary summary = summarize();
+    tape.fill(slot, summary);
+    return summary;
+  }
+
+  // Renders from totals recorded by record(tape), reading slots in the order they were reserved
+  void render(StringBuilder out, String indent, SummaryTape tape);
+
+  // Renders into one buffer and writes it with a single print
+  default void printDetails(String indent) {
+    System.out.print(Render.toString(this, indent));
+  }
 
   int getModuleCount(); // Default method to return 0 for non-cart items
+
+  // Price, duration, module count and lesson count from one post-order walk of the tree
+  PurchaseSummary summarize();
 }
@@ -0,0 +1,60 @@
+// Aggregate totals of a Purchasable tree, produced by a single post-order walk (see
+// Purchasable.summarize). Immutable, so nodes can cache and share them freely. The price is in
+// whole cents (see Money), so plus and minus are exact.
+public final class PurchaseSummary {
+  public static final PurchaseSummary EMPTY = new PurchaseSummary(0, 0, 0, 0);
+
+  private final long priceCents;
+  private final double duration; // in hours
+  private final int moduleCount;
+  private final int lessonCount;
+
+  public PurchaseSummary(long priceCents, double duration, int moduleCount, int lessonCount) {
+    this.priceCents = priceCents;
+    this.duration = duration;
+    this.moduleCount = moduleCount;
+    this.lessonCount = lessonCount;
+  }
+
+  public PurchaseSummary plus(PurchaseSummary other) {
+    return new PurchaseSummary(
+        priceCents + other.priceCents,
+        duration + other.duration,
+        moduleCount + other.moduleCount,
+        lessonCount + other.lessonCount);
+  }
+
+  public PurchaseSummary minus(PurchaseSummary other) {
+    return new PurchaseSummary(
+        priceCents - other.priceCents,
+        duration - other.duration,
+        moduleCount - other.moduleCount,
+        lessonCount - other.lessonCount);
+  }
+
+  // Same tree totals with a different price, used by add-ons and discounts
+  public PurchaseSummary withPriceCents(long newPriceCents) {
+    return new PurchaseSummary(newPriceCents, duration, moduleCount, lessonCount);
+  }
+
+  // Getters
+  public long getPriceCents() {
+    return priceCents;
+  }
+
+  public double getPrice() {
+    return Money.toDollars(priceCents);
+  }
+
+  public double getDuration() {
+    return duration;
+  }
+
+  public int getModuleCount() {
+    return moduleCount;
+  }
+
+  public int getLessonCount() {
+    return lessonCount;
+  }
+}
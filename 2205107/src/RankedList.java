@@ -0,0 +1,169 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// An immutable list with cheap removal from any position, used for cart lines. Elements sit in a
+// trie of 32-wide arrays in the order they were added, as in PersistentList, and interior nodes
+// also keep the number of live elements under each child. Removing an element leaves a hole in
+// its leaf and copies one root-to-leaf path with the counts along it decremented, and get(index)
+// steers by the counts, so plus, minus and get all walk at most a few levels however large the
+// list is. Holes are squeezed out by a rebuild once they outnumber the live elements, which over
+// the removals that made them costs O(1) each.
+final class RankedList<T> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final Object REMOVED = new Object(); // A hole left by minus
+  private static final RankedList<?> EMPTY = new RankedList<>(null, 0, 0, 0);
+
+  private final Object root; // A leaf Object[] when shift is 0, else a Node; null when empty
+  private final int shift; // Bits of the slot number consumed above the leaves
+  private final int slots; // Slots filled so far, holes included
+  private final int size; // Live elements
+  private final List<T> view = new View();
+
+  // Interior node: children and the live elements under each
+  private static final class Node {
+    private final Object[] children;
+    private final int[] counts;
+
+    private Node(Object[] children, int[] counts) {
+      this.children = children;
+      this.counts = counts;
+    }
+  }
+
+  private RankedList(Object root, int shift, int slots, int size) {
+    this.root = root;
+    this.shift = shift;
+    this.slots = slots;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> RankedList<T> empty() {
+    return (RankedList<T>) EMPTY;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  T get(int index) {
+    Objects.checkIndex(index, size);
+    Object node = root;
+    int rank = index;
+    for (int level = shift; level > 0; level -= BITS) {
+      Node interior = (Node) node;
+      int child = 0;
+      while (rank >= interior.counts[child]) {
+        rank -= interior.counts[child++];
+      }
+      node = interior.children[child];
+    }
+    return (T) ((Object[]) node)[slotOf((Object[]) node, rank)];
+  }
+
+  // This list with element appended
+  RankedList<T> plus(T element) {
+    if (root == null) {
+      return new RankedList<>(new Object[] {element}, 0, 1, 1);
+    }
+    if (slots == WIDTH << shift) { // Full: the old root becomes the first child of a new one
+      Node grown = new Node(new Object[] {root, path(shift, element)}, new int[] {size, 1});
+      return new RankedList<>(grown, shift + BITS, slots + 1, size + 1);
+    }
+    return new RankedList<>(appended(shift, root, element), shift, slots + 1, size + 1);
+  }
+
+  // This list without the element at index
+  RankedList<T> minus(int index) {
+    Objects.checkIndex(index, size);
+    if (size == 1) {
+      return empty();
+    }
+    RankedList<T> next = new RankedList<>(removed(shift, root, index), shift, slots, size - 1);
+    return next.slots - next.size > Math.max(next.size, WIDTH) ? next.compacted() : next;
+  }
+
+  // Read-only RandomAccess view; never changes, as the list never does
+  List<T> asList() {
+    return view;
+  }
+
+  private Object appended(int level, Object node, Object element) {
+    if (level == 0) {
+      Object[] leaf = (Object[]) node;
+      Object[] copy = Arrays.copyOf(leaf, leaf.length + 1);
+      copy[leaf.length] = element;
+      return copy;
+    }
+    Node interior = (Node) node;
+    int child = (slots >>> level) & MASK;
+    Object[] children = Arrays.copyOf(interior.children, Math.max(interior.children.length, child + 1));
+    int[] counts = Arrays.copyOf(interior.counts, children.length);
+    children[child] = child < interior.children.length
+        ? appended(level - BITS, interior.children[child], element)
+        : path(level - BITS, element);
+    counts[child]++;
+    return new Node(children, counts);
+  }
+
+  private static Object removed(int level, Object node, int rank) {
+    if (level == 0) {
+      Object[] leaf = ((Object[]) node).clone();
+      leaf[slotOf(leaf, rank)] = REMOVED;
+      return leaf;
+    }
+    Node interior = (Node) node;
+    int child = 0;
+    while (rank >= interior.counts[child]) {
+      rank -= interior.counts[child++];
+    }
+    Object[] children = interior.children.clone();
+    int[] counts = interior.counts.clone();
+    children[child] = removed(level - BITS, interior.children[child], rank);
+    counts[child]--;
+    return new Node(children, counts);
+  }
+
+  private RankedList<T> compacted() {
+    RankedList<T> compact = empty();
+    for (T element : view) {
+      compact = compact.plus(element);
+    }
+    return compact;
+  }
+
+  // Position in leaf of its rank-th live element
+  private static int slotOf(Object[] leaf, int rank) {
+    for (int i = 0; ; i++) {
+      if (leaf[i] != REMOVED && rank-- == 0) {
+        return i;
+      }
+    }
+  }
+
+  private static Object path(int level, Object element) {
+    return level == 0 ? new Object[] {element} : new Node(new Object[] {path(level - BITS, element)}, new int[] {1});
+  }
+
+  private final class View extends AbstractList<T> implements RandomAccess {
+    @Override
+    public T get(int index) {
+      return RankedList.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+// Helpers for Purchasable.render: append detail lines to a caller's buffer instead of printing
+// them one by one, so a whole screen is built in memory and written with a single flush.
+// The course and module layouts live here so every catalog representation renders alike, as does
+// the checkout receipt shared by the console and the HTTP service.
+final class Render {
+  static final String NL = System.lineSeparator();
+  static final String SEPARATOR = "-------------------";
+  static final int RULE_WIDTH = 60; // Screen-wide rules
+
+  private Render() {
+  }
+
+  // Renders item into a new buffer, e.g. for printDetails or tests
+  static String toString(Purchasable item, String indent) {
+    StringBuilder out = new StringBuilder(256);
+    item.render(out, indent);
+    return out.toString();
+  }
+
+  // Indent for the children of a node rendered at indent
+  static String nested(String indent) {
+    return "  " + indent;
+  }
+
+  static StringBuilder line(StringBuilder out, String indent, String text) {
+    return out.append(indent).append(text).append(NL);
+  }
+
+  static void lesson(StringBuilder out, String indent, String title, long priceCents, double duration) {
+    out.append(indent).append("Lesson: ").append(title).append(NL);
+    MoneyFormat.appendMoneyCents(out.append(indent).append("Lesson Price: "), priceCents).append(NL);
+    MoneyFormat.appendHours(out.append(indent).append("Duration: "), duration).append(NL);
+  }
+
+  // Course lines up to the lesson list; callers then add each lesson with childHeading
+  static void courseHeader(StringBuilder out, String indent, String title, long priceCents, double duration) {
+    out.append(indent).append("Course: ").append(title).append(NL);
+    MoneyFormat.appendMoneyCents(out.append(indent).append("Course Price: "), priceCents).append(NL);
+    MoneyFormat.appendHours(out.append(indent).append("Total Duration: "), duration).append(NL);
+    out.append(indent).append("Lessons:").append(NL);
+  }
+
+  static void moduleHeader(StringBuilder out, String indent, String title, long priceCents, double duration) {
+    out.append(indent).append("Module: ").append(title).append(NL);
+    MoneyFormat.appendMoneyCents(out.append(indent).append("Module Price: "), priceCents).append(NL);
+    MoneyFormat.appendHours(out.append(indent).append("Total Duration: "), duration).append(NL);
+  }
+
+  // "Lesson 3:", "Course 1:", "Item 2:" and so on
+  static void childHeading(StringBuilder out, String indent, String kind, int number) {
+    out.append(indent).append(kind).append(' ').append(number).append(':').append(NL);
+  }
+
+  static void separator(StringBuilder out, String indent) {
+    out.append(indent).append(SEPARATOR).append(NL);
+  }
+
+  static void rule(StringBuilder out, char c) {
+    out.repeat(c, RULE_WIDTH).append(NL);
+  }
+
+  // Customer, line items, subtotal, discounts and final price of a checkout
+  static void receipt(StringBuilder out, Customer customer, PriceBreakdown breakdown) {
+    out.append("Customer: ").append(customer.getName()).append(NL);
+    out.append("Student: ").append(customer.isStudent() ? "Yes" : "No").append(NL);
+    out.append("From Developing Country: ").append(customer.isFromDevelopingCountry() ? "Yes" : "No").append(NL);
+    out.append(NL).append("Items in Cart:").append(NL);
+
+    int itemNum = 0;
+    for (PriceBreakdown.LineItem line : breakdown.getLineItems()) {
+      itemNum++;
+      out.append(NL).append("  Item ").append(itemNum).append(':').append(NL);
+      line.getItem().render(out, "    ");
+      MoneyFormat.appendMoneyCents(out.append("    Price: "), line.getSummary().getPriceCents()).append(NL);
+    }
+
+    PurchaseSummary subtotal = breakdown.getSubtotal();
+    rule(out.append(NL), '-');
+    MoneyFormat.appendMoneyCents(out.append("Subtotal: "), subtotal.getPriceCents()).append(NL);
+    out.append("Total Duration: ").append(subtotal.getDuration()).append(" hours").append(NL);
+    out.append("Module Count: ").append(subtotal.getModuleCount()).append(NL);
+    rule(out, '-');
+
+    out.append(NL).append("DISCOUNTS APPLIED:").append(NL);
+    rule(out, '-');
+    for (DiscountRule discount : breakdown.getReceiptDiscounts()) {
+      MoneyFormat.appendMoneyCents(out.append(discount.getLabel()).append(": -"), discount.getAmountCents()).append(NL);
+    }
+    rule(out, '-');
+    MoneyFormat.appendMoneyCents(out.append("FINAL PRICE: "), breakdown.getFinalPriceCents()).append(NL);
+    if (breakdown.getSavingsCents() > 0) {
+      MoneyFormat.appendMoneyCents(out.append("Total Savings: "), breakdown.getSavingsCents()).append(NL);
+    }
+    rule(out, '-');
+  }
+}
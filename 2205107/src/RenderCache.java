@@ -0,0 +1,108 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Rendered detail text per catalog node, so browse screens that are shown again and again are a
+// single string append. Entries remember the CatalogEpoch they were rendered at; any change to a
+// lesson, course or module title, price or structure advances the epoch, and an entry from an
+// older epoch is re-rendered on its next use. Entries are kept in LRU order under a budget of
+// rendered characters.
+final class RenderCache {
+  static final long DEFAULT_BUDGET_CHARS = 4L << 20; // About 8 MB of UTF-16 text
+
+  private final long budgetChars;
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long usedChars;
+  private long hits;
+  private long misses;
+
+  RenderCache(long budgetChars) {
+    if (budgetChars < 1) {
+      throw new IllegalArgumentException("budgetChars must be positive: " + budgetChars);
+    }
+    this.budgetChars = budgetChars;
+  }
+
+  // The details of node rendered at indent, from the cache when still current
+  synchronized String render(Purchasable node, String indent) {
+    Key key = new Key(node, indent);
+    long epoch = CatalogEpoch.current();
+    Entry entry = entries.get(key);
+    if (entry != null && entry.epoch == epoch) {
+      hits++;
+      return entry.text;
+    }
+    misses++;
+    String text = Render.toString(node, indent);
+    if (entry != null) {
+      entries.remove(key);
+      usedChars -= entry.text.length();
+    }
+    if (text.length() <= budgetChars) {
+      entries.put(key, new Entry(text, epoch));
+      usedChars += text.length();
+      evictToBudget();
+    }
+    return text;
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    usedChars = 0;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized long usedChars() {
+    return usedChars;
+  }
+
+  synchronized long hits() {
+    return hits;
+  }
+
+  synchronized long misses() {
+    return misses;
+  }
+
+  private void evictToBudget() {
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (usedChars > budgetChars && eldest.hasNext()) {
+      usedChars -= eldest.next().text.length();
+      eldest.remove();
+    }
+  }
+
+  private static final class Key {
+    private final Purchasable node;
+    private final String indent;
+
+    Key(Purchasable node, String indent) {
+      this.node = node;
+      this.indent = indent;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key key && key.node.equals(node) && key.indent.equals(indent);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(node, indent);
+    }
+  }
+
+  private static final class Entry {
+    private final String text;
+    private final long epoch;
+
+    Entry(String text, long epoch) {
+      this.text = text;
+      this.epoch = epoch;
+    }
+  }
+}
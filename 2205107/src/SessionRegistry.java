@@ -0,0 +1,240 @@
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Shopping sessions by ID, each with its own cart and customer, so one process can serve many
+// shoppers. Sessions idle for idleTicks ticks expire, and at most maxSessions are kept.
+//
+// Expiry uses a hashed timing wheel instead of a timer per session: each session's ID sits in the
+// slot of the tick it may expire at. Using a session only stamps the current tick on it; when its
+// slot comes round the ticker either expires it or moves it to the slot of its new deadline. A
+// tick therefore costs only the sessions filed under it, and touching a session costs nothing
+// extra. The wheel has idleTicks + 1 slots, so a deadline never wraps past the tick being processed.
+//
+// The wheel holds IDs rather than sessions, so a removed session's cart is garbage as soon as it
+// leaves the map; its ID is dropped when its slot comes round. Once maxSessions removals have left
+// IDs behind, the next remove sweeps them all out, so the wheel never holds more than about twice
+// maxSessions entries however fast sessions are created and ended.
+//
+// When full, creating a session evicts the one closest to expiring: the wheel is walked from the
+// next tick onwards, filing stale entries forward, until a session that is due is found.
+final class SessionRegistry implements AutoCloseable {
+  private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<String>[] wheel; // Session IDs
+  private final int idleTicks;
+  private final int maxSessions;
+  private final AtomicLong now = new AtomicLong(); // Current tick
+  private final AtomicLong expired = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private final AtomicInteger removedSinceSweep = new AtomicInteger(); // IDs left on the wheel by remove
+  private final Object wheelLock = new Object(); // Held while entries are taken off the wheel
+  private ScheduledExecutorService ticker; // null when ticks are driven by the caller
+
+  // Ticks are driven by calling advance(), e.g. from tests
+  @SuppressWarnings("unchecked")
+  SessionRegistry(int idleTicks, int maxSessions) {
+    if (idleTicks < 1 || maxSessions < 1) {
+      throw new IllegalArgumentException("idleTicks and maxSessions must be positive");
+    }
+    this.idleTicks = idleTicks;
+    this.maxSessions = maxSessions;
+    this.wheel = (ConcurrentLinkedQueue<String>[]) new ConcurrentLinkedQueue<?>[idleTicks + 1];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  // Ticks every tick on a daemon thread; sessions expire after idleTimeout, rounded up to whole ticks
+  static SessionRegistry start(Duration idleTimeout, Duration tick, int maxSessions) {
+    long tickNanos = tick.toNanos();
+    SessionRegistry registry = new SessionRegistry(
+        (int) Math.max(1, (idleTimeout.toNanos() + tickNanos - 1) / tickNanos), maxSessions);
+    registry.ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "session-expiry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    registry.ticker.scheduleAtFixedRate(registry::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    return registry;
+  }
+
+  // One shopper: a cart and, once known, who they are
+  static final class Session {
+    private final String id;
+    private final CartService cart = new CartService();
+    private volatile Customer customer;
+    private volatile long lastUsed; // Tick of the last get
+
+    private Session(String id, long tick) {
+      this.id = id;
+      this.lastUsed = tick;
+    }
+
+    String getId() {
+      return id;
+    }
+
+    CartService getCart() {
+      return cart;
+    }
+
+    Customer getCustomer() {
+      return customer;
+    }
+
+    void setCustomer(Customer customer) {
+      this.customer = customer;
+    }
+
+    private long deadline(int idleTicks) {
+      return lastUsed + idleTicks;
+    }
+  }
+
+  Session create() {
+    while (sessions.size() >= maxSessions) {
+      if (!evictNextDue()) {
+        break; // Everything is being created right now; let the cap overshoot briefly
+      }
+    }
+    long tick = now.get();
+    Session session = new Session(UUID.randomUUID().toString(), tick);
+    sessions.put(session.id, session);
+    file(session, session.deadline(idleTicks));
+    return session;
+  }
+
+  // The session, marked as used now, or null if there is none or it has expired
+  Session get(String id) {
+    return sessions.computeIfPresent(id, (key, session) -> {
+      session.lastUsed = now.get();
+      return session;
+    });
+  }
+
+  boolean remove(String id) {
+    if (sessions.remove(id) == null) {
+      return false;
+    }
+    if (removedSinceSweep.incrementAndGet() > maxSessions) {
+      sweepRemoved();
+    }
+    return true;
+  }
+
+  int size() {
+    return sessions.size();
+  }
+
+  long getExpiredCount() {
+    return expired.get();
+  }
+
+  long getEvictedCount() {
+    return evicted.get();
+  }
+
+  // IDs on the wheel, live or left by remove; walks every slot, so for tests and monitoring
+  int wheelSize() {
+    int size = 0;
+    for (ConcurrentLinkedQueue<String> slot : wheel) {
+      size += slot.size();
+    }
+    return size;
+  }
+
+  // Moves time on by one tick and expires the sessions that have now been idle for idleTicks
+  void advance() {
+    synchronized (wheelLock) {
+      long tick = now.incrementAndGet();
+      ConcurrentLinkedQueue<String> slot = wheel[slot(tick)];
+      String id;
+      while ((id = slot.poll()) != null) {
+        Session session = sessions.get(id);
+        if (session == null) {
+          continue; // Removed
+        }
+        if (session.deadline(idleTicks) > tick) {
+          file(session, session.deadline(idleTicks)); // Used since it was filed here
+        } else if (expireIfIdle(session, tick)) {
+          expired.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+  }
+
+  // Evicts the session with the earliest deadline; false if no session could be found
+  private boolean evictNextDue() {
+    synchronized (wheelLock) {
+      long tick = now.get();
+      for (long due = tick + 1; due <= tick + wheel.length; due++) {
+        ConcurrentLinkedQueue<String> slot = wheel[slot(due)];
+        String id;
+        while ((id = slot.poll()) != null) {
+          Session session = sessions.get(id);
+          if (session == null) {
+            continue; // Removed
+          }
+          if (session.deadline(idleTicks) > due) {
+            file(session, session.deadline(idleTicks)); // Always a later slot, so this loop ends
+          } else if (sessions.remove(id, session)) {
+            evicted.incrementAndGet();
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  // Removes the session unless a get touched it after the ticker read its deadline
+  private boolean expireIfIdle(Session session, long tick) {
+    boolean[] removed = new boolean[1];
+    sessions.computeIfPresent(session.id, (key, current) -> {
+      if (current != session) {
+        return current;
+      }
+      if (session.deadline(idleTicks) > tick) {
+        file(session, session.deadline(idleTicks));
+        return session;
+      }
+      removed[0] = true;
+      return null;
+    });
+    return removed[0];
+  }
+
+  // Drops the IDs of removed sessions from every slot
+  private void sweepRemoved() {
+    synchronized (wheelLock) {
+      if (removedSinceSweep.get() <= maxSessions) {
+        return; // Another remove has just swept
+      }
+      removedSinceSweep.set(0);
+      for (ConcurrentLinkedQueue<String> slot : wheel) {
+        slot.removeIf(id -> !sessions.containsKey(id));
+      }
+    }
+  }
+
+  private void file(Session session, long deadline) {
+    wheel[slot(deadline)].add(session.id);
+  }
+
+  private int slot(long tick) {
+    return (int) (tick % wheel.length);
+  }
+}
@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Sums the summaries of a list of children for Cart, Course and Module.
+//
+// Prices are exact long cents, so only the double durations depend on the order of addition. The
+// list is always reduced with the same pairwise tree: ranges are halved until they are at
+// most LEAF_SIZE long, leaves are summed left to right, and halves are added left + right. The
+// parallel mode forks along exactly those splits, so parallel and sequential totals are
+// bit-for-bit identical. Lists no longer than LEAF_SIZE reduce as a plain left-to-right loop.
+//
+// Parallelism is chosen per call. Only lessons are summarized on the fork/join workers, as their
+// summarize() just reads two fields. Everything else may cache totals, link parents or load from a
+// LazyCatalog on first use, none of which is thread-safe, so it is summarized on the calling
+// thread before anything is forked.
+final class SummaryAggregator {
+  static final int LEAF_SIZE = 512;
+
+  private SummaryAggregator() {
+  }
+
+  static PurchaseSummary sum(List<? extends Purchasable> items) {
+    return sum(items, false);
+  }
+
+  static PurchaseSummary sum(List<? extends Purchasable> items, boolean parallel) {
+    if (items.isEmpty()) {
+      return PurchaseSummary.EMPTY;
+    }
+    if (!(items instanceof RandomAccess)) {
+      items = new ArrayList<>(items);
+    }
+    if (parallel && items.size() > LEAF_SIZE) {
+      PurchaseSummary[] ready = new PurchaseSummary[items.size()]; // null for lessons
+      for (int i = 0; i < ready.length; i++) {
+        Purchasable item = items.get(i);
+        if (!(item instanceof Lesson)) {
+          ready[i] = item.summarize();
+        }
+      }
+      return ForkJoinPool.commonPool().invoke(new SumTask(items, ready, 0, items.size()));
+    }
+    return sumRange(items, 0, items.size());
+  }
+
+  // Sums summaries already computed for count children, with the same reduction tree as sum(list)
+  static PurchaseSummary sum(PurchaseSummary[] parts, int count) {
+    return count == 0 ? PurchaseSummary.EMPTY : sumRange(parts, 0, count);
+  }
+
+  private static PurchaseSummary sumRange(PurchaseSummary[] parts, int from, int to) {
+    if (to - from <= LEAF_SIZE) {
+      long priceCents = 0;
+      double duration = 0;
+      int moduleCount = 0;
+      int lessonCount = 0;
+      for (int i = from; i < to; i++) {
+        priceCents += parts[i].getPriceCents();
+        duration += parts[i].getDuration();
+        moduleCount += parts[i].getModuleCount();
+        lessonCount += parts[i].getLessonCount();
+      }
+      return new PurchaseSummary(priceCents, duration, moduleCount, lessonCount);
+    }
+    int mid = (from + to) >>> 1;
+    return sumRange(parts, from, mid).plus(sumRange(parts, mid, to));
+  }
+
+  private static PurchaseSummary sumRange(List<? extends Purchasable> items, int from, int to) {
+    if (to - from <= LEAF_SIZE) {
+      return sumLeaf(items, null, from, to);
+    }
+    int mid = (from + to) >>> 1;
+    return sumRange(items, from, mid).plus(sumRange(items, mid, to));
+  }
+
+  // ready holds summaries taken on the calling thread, or is null when there are none
+  private static PurchaseSummary sumLeaf(List<? extends Purchasable> items, PurchaseSummary[] ready, int from,
+      int to) {
+    long priceCents = 0;
+    double duration = 0;
+    int moduleCount = 0;
+    int lessonCount = 0;
+    for (int i = from; i < to; i++) {
+      PurchaseSummary item = ready != null && ready[i] != null ? ready[i] : items.get(i).summarize();
+      priceCents += item.getPriceCents();
+      duration += item.getDuration();
+      moduleCount += item.getModuleCount();
+      lessonCount += item.getLessonCount();
+    }
+    return new PurchaseSummary(priceCents, duration, moduleCount, lessonCount);
+  }
+
+  private static final class SumTask extends RecursiveTask<PurchaseSummary> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<? extends Purchasable> items; // Tasks are never serialized
+    private final transient PurchaseSummary[] ready;
+    private final int from;
+    private final int to;
+
+    SumTask(List<? extends Purchasable> items, PurchaseSummary[] ready, int from, int to) {
+      this.items = items;
+      this.ready = ready;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected PurchaseSummary compute() {
+      if (to - from <= LEAF_SIZE) {
+        return sumLeaf(items, ready, from, to);
+      }
+      int mid = (from + to) >>> 1;
+      SumTask left = new SumTask(items, ready, from, mid);
+      left.fork();
+      PurchaseSummary right = new SumTask(items, ready, mid, to).compute();
+      return left.join().plus(right);
+    }
+  }
+}
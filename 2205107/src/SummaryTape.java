@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+// Totals for one render pass. Purchasable.record walks the tree once in post-order, reserving a
+// slot per node in pre-order and filling it once the node's children are summed; rendering then
+// walks the tree in pre-order and reads the slots back in the same order with next(). Every
+// node's totals are therefore computed once per render, however deep it sits.
+final class SummaryTape {
+  private PurchaseSummary[] slots = new PurchaseSummary[16];
+  private int size;
+  private int cursor;
+
+  int reserve() {
+    if (size == slots.length) {
+      slots = Arrays.copyOf(slots, size * 2);
+    }
+    return size++;
+  }
+
+  void fill(int slot, PurchaseSummary summary) {
+    slots[slot] = summary;
+  }
+
+  // Totals of the node being rendered; advances to the next node in pre-order
+  PurchaseSummary next() {
+    if (cursor >= size) {
+      throw new IllegalStateException("Render read more nodes than were recorded");
+    }
+    return slots[cursor++];
+  }
+
+  // Totals of the next node without consuming them, e.g. a decorator looking at its wrappee
+  PurchaseSummary peek() {
+    if (cursor >= size) {
+      throw new IllegalStateException("Render read more nodes than were recorded");
+    }
+    return slots[cursor];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int position() {
+    return cursor;
+  }
+}
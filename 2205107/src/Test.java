@@ -1,5 +1,30 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Test {
   private static int testCount = 0;
@@ -24,6 +49,31 @@ public class Test {
     testDecoratorChaining();
     testBoundaryConditions();
     testStressTests();
+    testCachedTotals();
+    testSummaries();
+    testDiscountProgram();
+    testFlattenedAddOns();
+    testParallelPricing();
+    testCartServiceTotals();
+    testIndexedChildren();
+    testCatalogRegistry();
+    testColumnarCatalog();
+    testOffHeapCatalog();
+    testCatalogLoader();
+    testCatalogSnapshot();
+    testLazyCatalog();
+    testTitleDictionary();
+    testRendering();
+    testOnePassRendering();
+    testRenderCache();
+    testMoneyFormat();
+    testMoneyCents();
+    testBatchCheckout();
+    testPricingServer();
+    testSessionRegistry();
+    testConcurrentCartService();
+    testCartSnapshots();
+    testCatalogVersions();
 
     // Print summary
     System.out.println("\n" + "=".repeat(80));
@@ -1260,6 +1310,2070 @@ public class Test {
     System.out.println();
   }
 
+  // ========================================================================
+  // CACHED TOTALS TESTS
+  // ========================================================================
+
+  private static void testCachedTotals() {
+    printHeader("CACHED TOTALS TESTS");
+
+    Lesson lesson = new Lesson("L1", 10.0, 2.0);
+    Course course = new Course("C1");
+    course.addLesson(lesson);
+    Module module = new Module("M1");
+    module.addCourse(course);
+    assertEquals(20.0, module.calculatePrice(), "Initial module price");
+
+    // Test 1: Repricing a lesson invalidates course and module
+    lesson.setPricePerHour(15.0);
+    assertEquals(30.0, course.calculatePrice(), "Course price after lesson repriced");
+    assertEquals(30.0, module.calculatePrice(), "Module price after lesson repriced");
+
+    // Test 2: Changing duration invalidates up the tree
+    lesson.setDuration(4.0);
+    assertEquals(4.0, module.calculateDuration(), "Module duration after lesson duration change");
+    assertEquals(60.0, module.calculatePrice(), "Module price after lesson duration change");
+
+    // Test 3: Adding and removing lessons invalidates the module
+    Lesson extra = new Lesson("L2", 5.0, 1.0);
+    course.addLesson(extra);
+    assertEquals(65.0, module.calculatePrice(), "Module price after lesson added");
+    course.removeLesson(extra);
+    assertEquals(60.0, module.calculatePrice(), "Module price after lesson removed");
+
+    // Test 4: Removed lesson no longer affects the course
+    extra.setPricePerHour(100.0);
+    assertEquals(60.0, course.calculatePrice(), "Detached lesson does not affect course");
+
+    // Test 5: Adding and removing courses
+    Course second = new Course("C2");
+    second.addLesson(new Lesson("L3", 10.0, 1.0));
+    module.addCourse(second);
+    assertEquals(70.0, module.calculatePrice(), "Module price after course added");
+    module.removeCourse(second);
+    assertEquals(60.0, module.calculatePrice(), "Module price after course removed");
+
+    // Test 6: Lesson shared between two courses updates both
+    Lesson shared = new Lesson("Shared", 10.0, 1.0);
+    Course a = new Course("A");
+    Course b = new Course("B");
+    a.addLesson(shared);
+    b.addLesson(shared);
+    assertEquals(10.0, b.calculatePrice(), "Shared lesson priced");
+    shared.setPricePerHour(20.0);
+    assertEquals(20.0, a.calculatePrice(), "Shared lesson update reaches first course");
+    assertEquals(20.0, b.calculatePrice(), "Shared lesson update reaches second course");
+
+    // Test 7: Lessons list is read-only
+    boolean rejected = false;
+    try {
+      course.getLessons().add(new Lesson("Sneaky", 1.0, 1.0));
+    } catch (UnsupportedOperationException e) {
+      rejected = true;
+    }
+    assertTrue(rejected, "Lessons list cannot bypass cache invalidation");
+
+    // Test 8: Children passed to the constructors are linked once the totals are cached
+    Lesson given = new Lesson("Given", 10.0, 1.0);
+    Course built = new Course("Built", new ArrayList<>(List.of(given)));
+    Module holder = new Module("Holder", new ArrayList<>(List.of(built)));
+    assertEquals(10.0, holder.calculatePrice(), "Constructor-built module priced");
+    given.setPricePerHour(30.0);
+    assertEquals(30.0, built.calculatePrice(), "Constructor-built course sees the lesson repriced");
+    assertEquals(30.0, holder.calculatePrice(), "Constructor-built module sees the lesson repriced");
+    built.addLesson(new Lesson("Added", 5.0, 1.0));
+    assertEquals(35.0, holder.calculatePrice(), "Lesson added after construction reaches the module");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // SUMMARY TESTS
+  // ========================================================================
+
+  private static void testSummaries() {
+    printHeader("SUMMARY TESTS");
+
+    // Test 1: Lesson summary
+    PurchaseSummary lessonSummary = new Lesson("L", 10.0, 2.0).summarize();
+    assertEquals(20.0, lessonSummary.getPrice(), "Lesson summary price");
+    assertEquals(1, lessonSummary.getLessonCount(), "Lesson summary lesson count");
+    assertEquals(0, lessonSummary.getModuleCount(), "Lesson summary module count");
+
+    // Test 2: Module summary counts lessons across courses
+    Module module = new Module("M");
+    Course c1 = new Course("C1");
+    c1.addLesson(new Lesson("L1", 10.0, 1.0));
+    c1.addLesson(new Lesson("L2", 10.0, 2.0));
+    Course c2 = new Course("C2");
+    c2.addLesson(new Lesson("L3", 20.0, 1.0));
+    module.addCourse(c1);
+    module.addCourse(c2);
+    PurchaseSummary moduleSummary = module.summarize();
+    assertEquals(50.0, moduleSummary.getPrice(), "Module summary price");
+    assertEquals(4.0, moduleSummary.getDuration(), "Module summary duration");
+    assertEquals(1, moduleSummary.getModuleCount(), "Module summary module count");
+    assertEquals(3, moduleSummary.getLessonCount(), "Module summary lesson count");
+
+    // Test 3: Cart summary through add-ons matches the individual calculations
+    List<Purchasable> items = new ArrayList<>();
+    items.add(new LiveMentorSupportDecorator(new PracticeQuestionSetDecorator(module)));
+    items.add(new Lesson("Solo", 5.0, 2.0));
+    Cart cart = new Cart(items);
+    PurchaseSummary cartSummary = cart.summarize();
+    assertEquals(cart.calculatePrice(), cartSummary.getPrice(), "Cart summary price matches");
+    assertEquals(cart.calculateDuration(), cartSummary.getDuration(), "Cart summary duration matches");
+    assertEquals(cart.getModuleCount(), cartSummary.getModuleCount(), "Cart summary module count matches");
+    assertEquals(4, cartSummary.getLessonCount(), "Cart summary lesson count");
+    assertEquals(90.0, cartSummary.getPrice(), "Cart summary includes add-ons");
+
+    // Test 4: Discount chain summary keeps duration and counts, discounts price
+    Customer student = new Customer("S", true, true);
+    Purchasable checkout = new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(cart), student));
+    PurchaseSummary checkoutSummary = checkout.summarize();
+    assertEquals(68.0, checkoutSummary.getPrice(), "Discounted summary price"); // 90 - 12 - 10
+    assertEquals(6.0, checkoutSummary.getDuration(), "Discounted summary duration");
+    assertEquals(1, checkoutSummary.getModuleCount(), "Discounted summary module count");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // DISCOUNT PROGRAM TESTS
+  // ========================================================================
+
+  private static void testDiscountProgram() {
+    printHeader("DISCOUNT PROGRAM TESTS");
+
+    List<Purchasable> items = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Module m = new Module("PM" + i);
+      Course c = new Course("PC" + i);
+      c.addLesson(new Lesson("PL" + i, 20.0, 3.0)); // 60 each
+      m.addCourse(c);
+      items.add(new PracticeQuestionSetDecorator(m)); // 70 each
+    }
+    Cart cart = new Cart(items); // 140, 6h, 2 modules
+    Customer student = new Customer("S", true, true);
+    Purchasable chain = new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(cart), student));
+
+    // Test 1: Compiled chain produces one rule per eligible decorator, innermost first
+    DiscountProgram program = DiscountProgram.compile(chain);
+    assertEquals(3, program.getRules().size(), "Compiled program has 3 rules");
+    assertEquals("Special Discount", program.getRules().get(0).getName(), "Innermost rule first");
+
+    // Test 2: Compiled evaluation matches nested decorator evaluation
+    PriceBreakdown breakdown = program.evaluate();
+    assertEquals(chain.calculatePrice(), breakdown.getFinalPrice(), "Compiled price matches nested price");
+    assertEquals(103.0, breakdown.getFinalPrice(), "Compiled final price"); // 140 - 12 - 10 - 15
+    assertEquals(140.0, breakdown.getSubtotal().getPrice(), "Breakdown subtotal");
+    assertEquals(37.0, breakdown.getSavings(), "Breakdown savings");
+
+    // Test 3: Line items mirror cart items
+    assertEquals(2, breakdown.getLineItems().size(), "Breakdown line item count");
+    assertEquals(70.0, breakdown.getLineItems().get(0).getSummary().getPrice(), "Line item price");
+
+    // Test 4: Only eligible discounts are listed
+    Customer regular = new Customer("R", false, false);
+    List<Purchasable> small = new ArrayList<>();
+    small.add(new Lesson("Short", 10.0, 1.0));
+    PriceBreakdown smallBreakdown = DiscountProgram.compile(new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(new Cart(small)), regular))).evaluate();
+    assertEquals(0, smallBreakdown.getAppliedDiscounts().size(), "No discounts applied");
+    assertEquals(10.0, smallBreakdown.getFinalPrice(), "Undiscounted final price");
+
+    // Test 5: Labels used on the receipt
+    assertEquals("Multi-Module Discount (2+ modules)",
+        breakdown.getAppliedDiscounts().get(2).getLabel(), "Receipt label with condition");
+    assertEquals("Developing Country Student Discount",
+        breakdown.getAppliedDiscounts().get(1).getLabel(), "Receipt label without condition");
+
+    // Test 6: Price floor holds in compiled form
+    List<Purchasable> cheap = new ArrayList<>();
+    cheap.add(new Module("Empty1"));
+    cheap.add(new Module("Empty2"));
+    PriceBreakdown cheapBreakdown = DiscountProgram.compile(
+        new MultiModuleDiscount(new Cart(cheap))).evaluate();
+    assertEquals(0.0, cheapBreakdown.getFinalPrice(), "Compiled price floor at zero");
+
+    // Test 7: Receipts keep the console order: Special, Multi-Module, then Developing Country
+    List<DiscountRule> receipt = breakdown.getReceiptDiscounts();
+    assertEquals(3, receipt.size(), "Receipt lists every applied discount");
+    assertEquals("Special Discount", receipt.get(0).getName(), "Receipt discount 1");
+    assertEquals("Multi-Module Discount", receipt.get(1).getName(), "Receipt discount 2");
+    assertEquals("Developing Country Student Discount", receipt.get(2).getName(), "Receipt discount 3");
+    StringBuilder rendered = new StringBuilder();
+    Render.receipt(rendered, student, breakdown);
+    int special = rendered.indexOf("Special Discount (duration >= 5 hours): -$12.00");
+    int multi = rendered.indexOf("Multi-Module Discount (2+ modules): -$15.00");
+    int devCountry = rendered.indexOf("Developing Country Student Discount: -$10.00");
+    assertTrue(special >= 0 && special < multi && multi < devCountry, "Rendered receipt discount order");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // FLATTENED ADD-ON TESTS
+  // ========================================================================
+
+  private static void testFlattenedAddOns() {
+    printHeader("FLATTENED ADD-ON TESTS");
+
+    // Test 1: Stacked decorators collapse onto the undecorated base item
+    Lesson base = new Lesson("Base", 10.0, 1.0);
+    AddOnDecorator inner = new LiveMentorSupportDecorator(base);
+    AddOnDecorator outer = new PracticeQuestionSetDecorator(inner);
+    assertTrue(outer.getBaseItem() == base, "Outer decorator points at base item");
+    assertTrue(outer.getPurchasableItem() == inner, "Wrappee is still the inner decorator");
+    assertEquals(2, outer.getAddOns().size(), "Two add-ons stacked");
+
+    // Test 2: Application order and counts are kept
+    assertTrue(outer.getAddOns().get(0) == AddOn.LIVE_MENTOR_SUPPORT, "Innermost add-on first");
+    assertTrue(outer.getAddOns().get(1) == AddOn.PRACTICE_QUESTION_SET, "Outermost add-on last");
+    assertEquals(1, outer.getAddOns().count(AddOn.PRACTICE_QUESTION_SET), "Practice count");
+    assertEquals(1, outer.getAddOns().count(AddOn.LIVE_MENTOR_SUPPORT), "Mentor count");
+
+    // Test 3: Items with the same stack share one interned add-on set
+    Purchasable other = new PracticeQuestionSetDecorator(
+        new LiveMentorSupportDecorator(new Lesson("Other", 5.0, 1.0)));
+    assertTrue(((AddOnDecorator) other).getAddOns() == outer.getAddOns(), "Add-on sets are interned");
+
+    // Test 4: Deep stacks price and count every layer
+    Purchasable deep = new Lesson("Deep", 10.0, 1.0);
+    for (int i = 0; i < 50; i++) {
+      deep = new PracticeQuestionSetDecorator(deep);
+    }
+    assertEquals(510.0, deep.calculatePrice(), "50 stacked add-ons price");
+    assertEquals(50, ((AddOnDecorator) deep).getAddOns().count(AddOn.PRACTICE_QUESTION_SET),
+        "50 stacked add-ons count");
+
+    // Test 5: Re-pointing a decorator restacks it
+    outer.setPurchasableItem(new Lesson("Replacement", 20.0, 1.0));
+    assertEquals(30.0, outer.calculatePrice(), "Restacked decorator price");
+    assertEquals(1, outer.getAddOns().size(), "Restacked decorator has one add-on");
+
+    // Test 6: Base item price changes still show through
+    Lesson live = new Lesson("Live", 10.0, 1.0);
+    Purchasable decorated = new LiveMentorSupportDecorator(new PracticeQuestionSetDecorator(live));
+    live.setPricePerHour(30.0);
+    assertEquals(60.0, decorated.calculatePrice(), "Base price change visible through stack");
+
+    // Test 7: Re-pointing an inner decorator shows through the outer one
+    AddOnDecorator lower = new LiveMentorSupportDecorator(new Lesson("First", 10.0, 1.0));
+    AddOnDecorator upper = new PracticeQuestionSetDecorator(lower);
+    Lesson swapped = new Lesson("Swapped", 40.0, 1.0);
+    lower.setPurchasableItem(swapped);
+    assertEquals(40.0 + AddOn.LIVE_MENTOR_SUPPORT.getPrice() + AddOn.PRACTICE_QUESTION_SET.getPrice(),
+        upper.calculatePrice(), "Outer price follows the re-pointed inner decorator");
+    assertTrue(upper.getBaseItem() == swapped, "Outer base item follows the inner decorator");
+    assertEquals(40.0 + AddOn.LIVE_MENTOR_SUPPORT.getPrice() + AddOn.PRACTICE_QUESTION_SET.getPrice(),
+        upper.summarize().getPrice(), "Outer summary follows the re-pointed inner decorator");
+
+    // Test 8: An inner subclass override is honoured by the layers above it
+    AddOnDecorator discounted = new LiveMentorSupportDecorator(new Lesson("Override", 10.0, 1.0)) {
+      @Override
+      public long calculatePriceCents() {
+        return 100;
+      }
+
+      @Override
+      public PurchaseSummary summarize() {
+        return super.summarize().withPriceCents(100);
+      }
+    };
+    Purchasable wrapped = new PracticeQuestionSetDecorator(discounted);
+    assertTrue(wrapped.calculatePriceCents() == 100 + AddOn.PRACTICE_QUESTION_SET.getPriceCents(),
+        "Outer price uses the inner override");
+    assertTrue(wrapped.summarize().getPriceCents() == 100 + AddOn.PRACTICE_QUESTION_SET.getPriceCents(),
+        "Outer summary uses the inner override");
+
+    // Test 9: Re-pointing the bottom of a three-deep stack restacks every layer above it
+    AddOnDecorator bottom = new PracticeQuestionSetDecorator(new Lesson("Bottom", 10.0, 1.0));
+    AddOnDecorator top = new LiveMentorSupportDecorator(new PracticeQuestionSetDecorator(bottom));
+    assertEquals(3, top.getAddOns().size(), "Three add-ons before re-pointing");
+    bottom.setPurchasableItem(new LiveMentorSupportDecorator(new Lesson("Moved", 20.0, 1.0)));
+    assertEquals(4, top.getAddOns().size(), "Top layer sees the added inner add-on");
+    assertTrue(top.getAddOns() == AddOnSet.EMPTY.with(AddOn.LIVE_MENTOR_SUPPORT).with(AddOn.PRACTICE_QUESTION_SET)
+        .with(AddOn.PRACTICE_QUESTION_SET).with(AddOn.LIVE_MENTOR_SUPPORT), "Restacked set is interned");
+    assertEquals(20.0 + 2 * AddOn.LIVE_MENTOR_SUPPORT.getPrice() + 2 * AddOn.PRACTICE_QUESTION_SET.getPrice(),
+        top.calculatePrice(), "Top layer prices the new stack");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // PARALLEL PRICING TESTS
+  // ========================================================================
+
+  private static void testParallelPricing() {
+    printHeader("PARALLEL PRICING TESTS");
+
+    // Test 1: Parallel and sequential totals are bit-for-bit identical
+    List<Purchasable> lessons = new ArrayList<>();
+    Random random = new Random(7);
+    for (int i = 0; i < 100_000; i++) {
+      lessons.add(new Lesson("PL" + i, random.nextInt(5_000) / 100.0, random.nextInt(40) / 8.0));
+    }
+    PurchaseSummary sequential = SummaryAggregator.sum(lessons, false);
+    PurchaseSummary parallel = SummaryAggregator.sum(lessons, true);
+    assertTrue(Double.doubleToLongBits(sequential.getPrice()) == Double.doubleToLongBits(parallel.getPrice()),
+        "Parallel price identical to sequential");
+    assertTrue(Double.doubleToLongBits(sequential.getDuration()) == Double.doubleToLongBits(parallel.getDuration()),
+        "Parallel duration identical to sequential");
+    assertEquals(100_000, parallel.getLessonCount(), "Parallel lesson count");
+
+    // Test 2: Parallel mode through Cart, with modules
+    List<Purchasable> modules = new ArrayList<>();
+    for (int i = 0; i < 5_000; i++) {
+      Module m = new Module("PM" + i);
+      Course c = new Course("PC" + i);
+      c.addLesson(new Lesson("PML" + i, 4.0, 0.5)); // 2 each
+      m.addCourse(c);
+      modules.add(m);
+    }
+    Cart bulkCart = new Cart(modules);
+    double sequentialPrice = bulkCart.calculatePrice();
+    PurchaseSummary parallelCart = bulkCart.summarize(true);
+    assertEquals(10_000.0, parallelCart.getPrice(), "Parallel bulk cart price");
+    assertEquals(5_000, parallelCart.getModuleCount(), "Parallel bulk cart module count");
+    assertTrue(parallelCart.getPrice() == sequentialPrice, "Parallel cart price matches sequential");
+
+    // Test 3: Small lists sum to exact cents, with no rounding left over from the order of addition
+    List<Purchasable> small = new ArrayList<>();
+    small.add(new Lesson("A", 0.1, 1.0));
+    small.add(new Lesson("B", 0.2, 1.0));
+    small.add(new Lesson("C", 0.3, 1.0));
+    assertTrue(SummaryAggregator.sum(small, true).getPriceCents() == 60, "Small list sums to exact cents");
+    assertTrue(SummaryAggregator.sum(small, true).getPrice() == 0.6, "Small list dollar view is exact");
+
+    // Test 4: Parallel sums of a course with removed lessons never see a list being compacted
+    Course holey = new Course("Holey");
+    List<Lesson> held = new ArrayList<>();
+    for (int i = 0; i < 4_000; i++) {
+      Lesson lesson = new Lesson("H" + i, 1.0, 1.0);
+      held.add(lesson);
+      holey.addLesson(lesson);
+    }
+    List<Lesson> view = holey.getLessons();
+    boolean exact = true;
+    try {
+      for (int round = 0; round < 200; round++) {
+        holey.removeLesson(held.get(round * 3)); // Leaves a tombstone the next sum must not trip on
+        long expected = (long) (4_000 - round - 1) * 100;
+        exact &= holey.summarize(true).getPriceCents() == expected;
+        exact &= SummaryAggregator.sum(view, true).getPriceCents() == expected;
+      }
+    } catch (RuntimeException e) {
+      exact = false;
+    }
+    assertTrue(exact, "Parallel sums after removals are exact");
+    holey.removeLesson(held.get(1));
+    assertTrue(view.get(0) == held.get(2), "A held view reads past fresh tombstones");
+    assertEquals(3_799, view.size(), "A held view sizes without fresh tombstones");
+
+    // Test 5: Courses shared between modules link and cache safely in a parallel sum
+    List<Purchasable> sharing = new ArrayList<>();
+    List<Course> sharedCourses = new ArrayList<>();
+    for (int i = 0; i < 600; i++) {
+      Course shared = new Course("SC" + i, new ArrayList<>(List.of(new Lesson("SL" + i, 2.0, 1.0))));
+      sharedCourses.add(shared);
+      sharing.add(new Module("SA" + i, new ArrayList<>(List.of(shared))));
+      sharing.add(new Module("SB" + i, new ArrayList<>(List.of(shared))));
+    }
+    PurchaseSummary sharedTotal = new Cart(sharing).summarize(true);
+    assertTrue(sharedTotal.getPriceCents() == 1_200 * 200, "Parallel sum counts a shared course in each module");
+    boolean linkedTwice = true;
+    for (Course shared : sharedCourses) {
+      linkedTwice &= shared.getParents().size() == 2;
+    }
+    assertTrue(linkedTwice, "Shared courses link both modules");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // CART SERVICE TOTALS TESTS
+  // ========================================================================
+
+  private static void testCartServiceTotals() {
+    printHeader("CART SERVICE TOTALS TESTS");
+
+    CartService service = new CartService();
+    assertEquals(0.0, service.calculateSubtotal(), "Empty service subtotal");
+
+    // Test 1: Totals follow additions
+    Module module = new Module("M");
+    Course course = new Course("C");
+    Lesson lesson = new Lesson("L", 10.0, 2.0);
+    course.addLesson(lesson);
+    module.addCourse(course);
+    service.addItem(new PracticeQuestionSetDecorator(module)); // 30
+    service.addItem(new Lesson("Solo", 5.0, 1.0)); // 5
+    assertEquals(35.0, service.calculateSubtotal(), "Running subtotal after adds");
+    assertEquals(3.0, service.getTotals().getDuration(), "Running duration after adds");
+    assertEquals(1, service.getTotals().getModuleCount(), "Running module count after adds");
+    assertEquals(5.0, service.getItemSummary(1).getPrice(), "Per-item summary");
+
+    // Test 2: Totals follow removals
+    service.removeAt(1);
+    assertEquals(30.0, service.calculateSubtotal(), "Running subtotal after remove");
+    assertEquals(2.0, service.getTotals().getDuration(), "Running duration after remove");
+
+    // Test 3: Catalog price change is picked up through the epoch hook
+    lesson.setPricePerHour(20.0);
+    assertEquals(50.0, service.calculateSubtotal(), "Subtotal after catalog repricing");
+    assertEquals(50.0, service.getItemSummary(0).getPrice(), "Item summary after catalog repricing");
+
+    // Test 4: Catalog structure change is picked up too
+    course.addLesson(new Lesson("L2", 10.0, 1.0));
+    assertEquals(60.0, service.calculateSubtotal(), "Subtotal after lesson added to catalog");
+
+    // Test 5: Running totals agree with a full cart walk
+    assertEquals(service.toCart().calculatePrice(), service.calculateSubtotal(), "Running subtotal matches cart walk");
+
+    // Test 6: Clear resets everything
+    service.clear();
+    assertEquals(0.0, service.calculateSubtotal(), "Subtotal after clear");
+    assertEquals(0, service.getTotals().getModuleCount(), "Module count after clear");
+
+    // Test 7: Checkout from running totals matches the compiled program over a walked cart
+    service.addItem(module);
+    service.addItem(new Module("Empty"));
+    Customer customer = new Customer("S", true, true);
+    DiscountProgram program = DiscountProgram.compile(new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(service.toCart()), customer)));
+    assertEquals(program.evaluate().getFinalPrice(),
+        program.evaluate(service.getLineItems(), service.getTotals()).getFinalPrice(),
+        "Running-total checkout matches walked checkout");
+
+    // Test 8: A title edit doesn't make the cart re-read its totals; a price edit does
+    CartService.Snapshot beforeRename = service.snapshot();
+    lesson.setTitle("Renamed");
+    assertTrue(service.snapshot() == beforeRename, "Title edit keeps the cart's snapshot");
+    lesson.setPricePerHour(30.0);
+    assertTrue(service.snapshot() != beforeRename, "Price edit refreshes the cart's totals");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // INDEXED CHILDREN TESTS
+  // ========================================================================
+
+  private static void testIndexedChildren() {
+    printHeader("INDEXED CHILDREN TESTS");
+    final int n = 150_000;
+    long start = System.nanoTime();
+
+    // Test 1: Bulk course build with duplicate checks
+    Course bulkCourse = new Course("Bulk Course");
+    Lesson[] lessons = new Lesson[n];
+    for (int i = 0; i < n; i++) {
+      lessons[i] = new Lesson("BL" + i, 1.0, 0.5);
+      bulkCourse.addLesson(lessons[i]);
+    }
+    boolean anyDuplicateAccepted = false;
+    for (int i = 0; i < n; i += 1_000) {
+      anyDuplicateAccepted |= bulkCourse.addLesson(lessons[i]);
+    }
+    assertFalse(anyDuplicateAccepted, "Duplicate lessons rejected in " + n + "-lesson course");
+    assertEquals(n, bulkCourse.getLessons().size(), "Bulk course size");
+
+    // Test 2: Removing every other lesson keeps insertion order
+    for (int i = 0; i < n; i += 2) {
+      bulkCourse.removeLesson(lessons[i]);
+    }
+    assertEquals(n / 2, bulkCourse.getLessons().size(), "Bulk course size after removals");
+    assertTrue(bulkCourse.getLessons().get(0) == lessons[1], "First remaining lesson in order");
+    assertTrue(bulkCourse.getLessons().get(n / 2 - 1) == lessons[n - 1], "Last remaining lesson in order");
+    assertEquals(n / 2 * 0.5, bulkCourse.calculatePrice(), "Bulk course price after removals");
+    assertFalse(bulkCourse.removeLesson(lessons[0]), "Removed lesson cannot be removed again");
+
+    // Test 3: Bulk module build
+    Module bulkModule = new Module("Bulk Module");
+    Course[] courses = new Course[n];
+    for (int i = 0; i < n; i++) {
+      courses[i] = new Course("BC" + i);
+      bulkModule.addCourse(courses[i]);
+    }
+    assertFalse(bulkModule.addCourse(courses[n / 2]), "Duplicate course rejected in bulk module");
+    for (int i = 0; i < n; i += 3) {
+      bulkModule.removeCourse(courses[i]);
+    }
+    assertEquals(n - (n + 2) / 3, bulkModule.getCourses().size(), "Bulk module size after removals");
+    assertTrue(bulkModule.getCourses().get(0) == courses[1], "Bulk module keeps order");
+
+    // Test 4: Bulk cart build and teardown
+    Cart bulkCart = new Cart(new ArrayList<>());
+    Purchasable[] cartItems = new Purchasable[n];
+    boolean allAdded = true;
+    for (int i = 0; i < n; i++) {
+      cartItems[i] = new Lesson("CI" + i, 2.0, 0.5);
+      allAdded &= bulkCart.addItem(cartItems[i]);
+    }
+    assertTrue(allAdded, "Every bulk cart add accepted");
+    assertEquals(n, bulkCart.getItems().size(), "Bulk cart size");
+    for (int i = n - 1; i >= 0; i--) {
+      bulkCart.removeItem(cartItems[i]);
+    }
+    assertEquals(0, bulkCart.getItems().size(), "Bulk cart empty after removing everything");
+
+    // Test 5: Duplicates handed to the constructor are kept, like a plain list
+    Lesson twice = new Lesson("Twice", 10.0, 1.0);
+    List<Purchasable> withDuplicates = new ArrayList<>();
+    withDuplicates.add(twice);
+    withDuplicates.add(new Lesson("Between", 1.0, 1.0));
+    withDuplicates.add(twice);
+    Cart duplicateCart = new Cart(withDuplicates);
+    assertEquals(21.0, duplicateCart.calculatePrice(), "Constructor duplicates counted");
+    assertTrue(duplicateCart.removeItem(twice), "Remove first duplicate");
+    assertTrue(duplicateCart.getItems().contains(twice), "Second duplicate still present");
+    assertTrue(duplicateCart.getItems().get(1) == twice, "Second duplicate keeps its position");
+    assertTrue(duplicateCart.removeItem(twice), "Remove second duplicate");
+    assertFalse(duplicateCart.getItems().contains(twice), "No duplicates left");
+
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    System.out.println("  (indexed children stress finished in " + millis + " ms)");
+    System.out.println();
+  }
+
+  // ========================================================================
+  // CATALOG REGISTRY TESTS
+  // ========================================================================
+
+  private static void testCatalogRegistry() {
+    printHeader("CATALOG REGISTRY TESTS");
+
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    CatalogRegistry registry = CatalogRegistry.index(catalog);
+
+    // Test 1: IDs are dense and depth-first
+    Module first = catalog.get(0);
+    Course firstCourse = first.getCourses().get(0);
+    Lesson firstLesson = firstCourse.getLessons().get(0);
+    assertEquals(0, first.getCatalogId(), "First module gets ID 0");
+    assertEquals(1, firstCourse.getCatalogId(), "First course follows its module");
+    assertEquals(2, firstLesson.getCatalogId(), "First lesson follows its course");
+    assertEquals(3 + 6 + 16, registry.size(), "Every module, course and lesson registered");
+
+    // Test 2: ID lookups and parent links
+    assertTrue(registry.get(firstLesson.getCatalogId()) == firstLesson, "ID resolves to node");
+    assertTrue(registry.getLesson(2) == firstLesson, "Typed lesson lookup");
+    assertEquals(firstCourse.getCatalogId(), registry.getParentId(firstLesson.getCatalogId()), "Lesson parent is its course");
+    assertEquals(first.getCatalogId(), registry.getParentId(firstCourse.getCatalogId()), "Course parent is its module");
+    assertEquals(CatalogRegistry.NO_ID, registry.getParentId(first.getCatalogId()), "Module has no parent");
+
+    // Test 3: Last node
+    Module last = catalog.get(catalog.size() - 1);
+    List<Course> lastCourses = last.getCourses();
+    List<Lesson> lastLessons = lastCourses.get(lastCourses.size() - 1).getLessons();
+    assertEquals(registry.size() - 1, lastLessons.get(lastLessons.size() - 1).getCatalogId(), "Last lesson gets last ID");
+
+    // Test 4: Wrong kind and unknown IDs are rejected
+    boolean wrongKind = false;
+    try {
+      registry.getModule(firstLesson.getCatalogId());
+    } catch (IllegalArgumentException e) {
+      wrongKind = true;
+    }
+    assertTrue(wrongKind, "Lesson ID rejected as module");
+    boolean unknown = false;
+    try {
+      registry.get(registry.size());
+    } catch (IllegalArgumentException e) {
+      unknown = true;
+    }
+    assertTrue(unknown, "Unknown ID rejected");
+
+    // Test 5: Shared nodes are registered once
+    Lesson shared = new Lesson("Shared", 1.0, 1.0);
+    Course a = new Course("A");
+    Course b = new Course("B");
+    a.addLesson(shared);
+    b.addLesson(shared);
+    Module m = new Module("M");
+    m.addCourse(a);
+    m.addCourse(b);
+    List<Module> sharedCatalog = new ArrayList<>();
+    sharedCatalog.add(m);
+    CatalogRegistry sharedRegistry = CatalogRegistry.index(sharedCatalog);
+    assertEquals(4, sharedRegistry.size(), "Shared lesson registered once");
+    assertEquals(a.getCatalogId(), sharedRegistry.getParentId(shared.getCatalogId()), "Shared lesson keeps first parent");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // COLUMNAR CATALOG TESTS
+  // ========================================================================
+
+  private static void testColumnarCatalog() {
+    printHeader("COLUMNAR CATALOG TESTS");
+
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    ColumnarCatalog columns = ColumnarCatalog.from(catalog);
+
+    // Test 1: Shape
+    assertEquals(3, columns.moduleCount(), "Columnar module count");
+    assertEquals(6, columns.courseCount(), "Columnar course count");
+    assertEquals(16, columns.lessonCount(), "Columnar lesson count");
+
+    // Test 2: Totals match the object model exactly
+    boolean allMatch = true;
+    for (int m = 0; m < catalog.size(); m++) {
+      Module module = catalog.get(m);
+      ColumnarCatalog.ModuleView view = columns.module(m);
+      allMatch &= view.calculatePrice() == module.calculatePrice();
+      allMatch &= view.calculateDuration() == module.calculateDuration();
+      allMatch &= view.summarize().getLessonCount() == module.summarize().getLessonCount();
+      for (int c = 0; c < module.getCourses().size(); c++) {
+        allMatch &= view.getCourses().get(c).calculatePrice() == module.getCourses().get(c).calculatePrice();
+      }
+    }
+    assertTrue(allMatch, "Columnar totals match object totals bit for bit");
+
+    // Test 3: Lesson rows know their course and module
+    ColumnarCatalog.CourseView secondCourse = columns.module(1).getCourses().get(1);
+    assertEquals("Statistics & Probability", secondCourse.getTitle(), "Columnar course title");
+    assertEquals("Hypothesis Testing", secondCourse.getLessons().get(1).getTitle(), "Columnar lesson title");
+    int lastLesson = columns.lessonCount() - 1;
+    assertEquals(2, columns.getModuleIndex(lastLesson), "Last lesson in last module");
+    assertEquals(5, columns.getCourseIndex(lastLesson), "Last lesson in last course");
+
+    // Test 4: Views work in carts with add-ons and discounts
+    List<Purchasable> items = new ArrayList<>();
+    items.add(new PracticeQuestionSetDecorator(columns.module(0)));
+    items.add(columns.module(2));
+    Cart viewCart = new Cart(items);
+    List<Purchasable> objectItems = new ArrayList<>();
+    objectItems.add(new PracticeQuestionSetDecorator(catalog.get(0)));
+    objectItems.add(catalog.get(2));
+    Cart objectCart = new Cart(objectItems);
+    Customer customer = new Customer("S", true, true);
+    double viewPrice = new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(viewCart), customer)).calculatePrice();
+    double objectPrice = new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(objectCart), customer)).calculatePrice();
+    assertEquals(objectPrice, viewPrice, "Columnar checkout matches object checkout");
+    assertEquals(2, viewCart.getModuleCount(), "Columnar module views count as modules");
+
+    // Test 5: Views of the same row are the same cart item
+    Cart dedupCart = new Cart(new ArrayList<>());
+    assertTrue(dedupCart.addItem(columns.lesson(3)), "First lesson view added");
+    assertFalse(dedupCart.addItem(columns.lesson(3)), "Second view of same lesson rejected");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // OFF-HEAP CATALOG TESTS
+  // ========================================================================
+
+  private static void testOffHeapCatalog() {
+    printHeader("OFF-HEAP CATALOG TESTS");
+
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    try (OffHeapCatalogStore store = OffHeapCatalogStore.from(catalog)) {
+      // Test 1: Shape and footprint
+      assertEquals(3, store.moduleCount(), "Off-heap module count");
+      assertEquals(6, store.courseCount(), "Off-heap course count");
+      assertEquals(16, store.lessonCount(), "Off-heap lesson count");
+      assertTrue(store.offHeapBytes() > 16 * OffHeapCatalogStore.LESSON_BYTES, "Records and titles live off-heap");
+
+      // Test 2: Totals match the object model exactly
+      boolean allMatch = true;
+      for (int m = 0; m < catalog.size(); m++) {
+        Module module = catalog.get(m);
+        OffHeapCatalogStore.ModuleRecord record = store.module(m);
+        allMatch &= record.calculatePrice() == module.calculatePrice();
+        allMatch &= record.calculateDuration() == module.calculateDuration();
+        allMatch &= record.summarize().getLessonCount() == module.summarize().getLessonCount();
+        for (int c = 0; c < module.getCourses().size(); c++) {
+          Course course = module.getCourses().get(c);
+          OffHeapCatalogStore.CourseRecord courseRecord = record.getCourses().get(c);
+          allMatch &= courseRecord.calculatePrice() == course.calculatePrice();
+          allMatch &= courseRecord.getTitle().equals(course.getTitle());
+          for (int l = 0; l < course.getLessons().size(); l++) {
+            allMatch &= courseRecord.getLessons().get(l).getTitle().equals(course.getLessons().get(l).getTitle());
+          }
+        }
+      }
+      assertTrue(allMatch, "Off-heap totals and titles match the object model");
+
+      // Test 3: Records work in discounted carts
+      List<Purchasable> items = new ArrayList<>();
+      items.add(new LiveMentorSupportDecorator(store.module(1)));
+      items.add(store.module(2));
+      List<Purchasable> objectItems = new ArrayList<>();
+      objectItems.add(new LiveMentorSupportDecorator(catalog.get(1)));
+      objectItems.add(catalog.get(2));
+      double offHeapPrice = new MultiModuleDiscount(new SpecialDiscount(new Cart(items))).calculatePrice();
+      double objectPrice = new MultiModuleDiscount(new SpecialDiscount(new Cart(objectItems))).calculatePrice();
+      assertEquals(objectPrice, offHeapPrice, "Off-heap checkout matches object checkout");
+      assertTrue(store.course(2).equals(store.course(2)), "Records of the same row are equal");
+    }
+
+    // Test 4: Streaming builder handles non-ASCII titles and large courses
+    OffHeapCatalogStore.Builder builder = new OffHeapCatalogStore.Builder();
+    builder.startModule("Café Analytics");
+    builder.startCourse("Données");
+    Course big = new Course("Big");
+    for (int i = 0; i < 2000; i++) {
+      double rate = 10 + (i % 7) * 0.1;
+      double hours = 0.5 + (i % 3) * 0.25;
+      builder.addLesson("L" + i, rate, hours);
+      big.addLesson(new Lesson("L" + i, rate, hours));
+    }
+    try (OffHeapCatalogStore built = builder.build()) {
+      assertEquals("Café Analytics", built.module(0).getTitle(), "UTF-8 module title round trips");
+      assertEquals("Données", built.course(0).getTitle(), "UTF-8 course title round trips");
+      assertTrue(built.course(0).calculatePrice() == big.calculatePrice(), "Large course total matches pairwise sum");
+      assertEquals(2000, built.course(0).getLessons().size(), "Large course lesson count");
+      assertTrue(built.offHeapBytes() == 32 + 32 + 2000 * OffHeapCatalogStore.LESSON_BYTES
+          + built.titlesSegment().byteSize(), "Built store holds exact-size segments");
+      builder.abort(); // Growth arena is already freed; the store keeps its own
+      assertEquals("L1999", built.lesson(1999).getTitle(), "Store outlives its builder");
+    }
+
+    // Test 5: Lessons must belong to a course
+    boolean rejected = false;
+    OffHeapCatalogStore.Builder orphan = new OffHeapCatalogStore.Builder();
+    try {
+      orphan.addLesson("Orphan", 10, 1);
+    } catch (IllegalStateException e) {
+      rejected = true;
+    } finally {
+      orphan.abort();
+    }
+    assertTrue(rejected, "Lesson without a course rejected");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // CATALOG LOADER TESTS
+  // ========================================================================
+
+  private static void testCatalogLoader() {
+    printHeader("CATALOG LOADER TESTS");
+
+    String csv = """
+        # Exported catalog
+        module,Web Development Fundamentals
+        course,HTML & CSS Essentials
+        lesson,HTML Basics,10.0,2.0
+        lesson,"Styling, Layout ""and"" Color",15,3
+        course,JavaScript Mastery
+        lesson,JS Fundamentals,20.0,3.0
+
+        module,Data Science Essentials
+        course,Python for Data Science
+        lesson,Python Basics,15.0,2.0
+        """;
+
+    // Test 1: Records build the object graph
+    try {
+      List<Module> modules = CatalogLoader.load(new StringReader(csv));
+      assertEquals(2, modules.size(), "Loaded module count");
+      assertEquals(2, modules.get(0).getCourses().size(), "Loaded course count");
+      Lesson quoted = modules.get(0).getCourses().get(0).getLessons().get(1);
+      assertEquals("Styling, Layout \"and\" Color", quoted.getTitle(), "Quoted title with comma and quotes");
+      assertEquals(125.0, modules.get(0).calculatePrice(), "Loaded module price");
+      assertEquals(8.0, modules.get(0).calculateDuration(), "Loaded module duration");
+      assertEquals(30.0, modules.get(1).calculatePrice(), "Second loaded module price");
+    } catch (IOException e) {
+      assertTrue(false, "Valid catalog loads: " + e.getMessage());
+    }
+
+    // Test 2: Validation errors name the line
+    assertEquals(2, loadErrorLine("module,M\nlesson,L,10,1\n"), "Lesson outside a course rejected");
+    assertEquals(1, loadErrorLine("course,C\n"), "Course outside a module rejected");
+    assertEquals(3, loadErrorLine("module,M\ncourse,C\nlesson,L,ten,1\n"), "Non-numeric price rejected");
+    assertEquals(3, loadErrorLine("module,M\ncourse,C\nlesson,L,10,-1\n"), "Negative duration rejected");
+    assertEquals(2, loadErrorLine("module,M\nchapter,X\n"), "Unknown record type rejected");
+    assertEquals(1, loadErrorLine("module,\"M\n"), "Unterminated quote rejected");
+    assertEquals(1, loadErrorLine("module, \n"), "Empty title rejected");
+    Path bad = null;
+    try {
+      bad = Files.createTempFile("catalog", ".csv");
+      Files.writeString(bad, "module,M\ncourse,C\nlesson,L,ten,1\n");
+      try (OffHeapCatalogStore store = CatalogLoader.loadOffHeap(bad)) {
+        assertTrue(store == null, "Off-heap import of a bad line should throw");
+      }
+    } catch (CatalogFormatException e) {
+      assertEquals(3, e.getLineNumber(), "Off-heap import reports the bad line and frees its memory");
+    } catch (IOException e) {
+      assertTrue(false, "Off-heap bad-line test: " + e.getMessage());
+    } finally {
+      if (bad != null) {
+        try {
+          Files.deleteIfExists(bad);
+        } catch (IOException ignored) {
+          // Temp file cleanup is best effort
+        }
+      }
+    }
+
+    // Test 3: A large export streams into both the object graph and the off-heap store
+    Path file = null;
+    try {
+      file = Files.createTempFile("catalog", ".csv");
+      int moduleCount = 20;
+      int coursesPerModule = 50;
+      int lessonsPerCourse = 100;
+      try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        for (int m = 0; m < moduleCount; m++) {
+          writer.write("module,Module " + m + "\n");
+          for (int c = 0; c < coursesPerModule; c++) {
+            writer.write("course,Course " + m + "-" + c + "\n");
+            for (int l = 0; l < lessonsPerCourse; l++) {
+              writer.write("lesson,Lesson " + l + "," + (10 + l % 5) + "," + (1 + l % 3) * 0.5 + "\n");
+            }
+          }
+        }
+      }
+      List<Module> modules = CatalogLoader.load(file);
+      int lessons = 0;
+      for (Module module : modules) {
+        lessons += module.summarize().getLessonCount();
+      }
+      assertEquals(moduleCount * coursesPerModule * lessonsPerCourse, lessons, "Large export lesson count");
+      try (OffHeapCatalogStore store = CatalogLoader.loadOffHeap(file)) {
+        assertEquals(modules.size(), store.moduleCount(), "Off-heap import module count");
+        assertEquals(lessons, store.lessonCount(), "Off-heap import lesson count");
+        boolean totalsMatch = true;
+        for (int m = 0; m < modules.size(); m++) {
+          totalsMatch &= store.module(m).calculatePrice() == modules.get(m).calculatePrice();
+        }
+        assertTrue(totalsMatch, "Off-heap import totals match object import");
+      }
+    } catch (IOException e) {
+      assertTrue(false, "Large export loads: " + e.getMessage());
+    } finally {
+      if (file != null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+          // Temp file cleanup is best effort
+        }
+      }
+    }
+
+    System.out.println();
+  }
+
+  // Line number reported for an invalid catalog, or -1 if it loaded
+  private static int loadErrorLine(String csv) {
+    try {
+      CatalogLoader.load(new StringReader(csv));
+      return -1;
+    } catch (CatalogFormatException e) {
+      return e.getLineNumber();
+    } catch (IOException e) {
+      return -2;
+    }
+  }
+
+  // ========================================================================
+  // CATALOG SNAPSHOT TESTS
+  // ========================================================================
+
+  private static void testCatalogSnapshot() {
+    printHeader("CATALOG SNAPSHOT TESTS");
+
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    Path file = null;
+    try {
+      file = Files.createTempFile("catalog", ".snapshot");
+      try (OffHeapCatalogStore store = OffHeapCatalogStore.from(catalog)) {
+        CatalogSnapshot.write(store, file);
+      }
+
+      // Test 1: Header and size
+      assertTrue(CatalogSnapshot.isSnapshot(file), "Written file is recognized as a snapshot");
+      assertEquals(CatalogSnapshot.HEADER_BYTES + 3 * 32 + 6 * 32 + 16 * 24, (int) Files.size(file) - titleBytes(catalog),
+          "Snapshot holds header, records and titles");
+
+      // Test 2: Mapped store matches the source catalog
+      try (OffHeapCatalogStore mapped = CatalogSnapshot.open(file)) {
+        assertEquals(16, mapped.lessonCount(), "Mapped lesson count");
+        boolean allMatch = true;
+        for (int m = 0; m < catalog.size(); m++) {
+          allMatch &= mapped.module(m).calculatePrice() == catalog.get(m).calculatePrice();
+          allMatch &= mapped.module(m).getTitle().equals(catalog.get(m).getTitle());
+        }
+        assertTrue(allMatch, "Mapped totals and titles match");
+        assertEquals("Hypothesis Testing", mapped.course(3).getLessons().get(1).getTitle(), "Mapped lesson title");
+
+        // Test 3: Hydrating the snapshot rebuilds an equivalent object graph
+        List<Module> hydrated = CatalogLoader.load(mapped);
+        assertEquals(3, hydrated.size(), "Hydrated module count");
+        assertEquals(catalog.get(2).calculatePrice(), hydrated.get(2).calculatePrice(), "Hydrated module price");
+      }
+
+      // Test 4: Corrupt or foreign files are rejected
+      byte[] bytes = Files.readAllBytes(file);
+      bytes[8] = 99; // Version
+      Files.write(file, bytes);
+      assertTrue(snapshotRejected(file), "Unknown snapshot version rejected");
+      bytes[8] = (byte) CatalogSnapshot.VERSION;
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+      assertTrue(snapshotRejected(file), "Truncated snapshot rejected");
+      Files.writeString(file, "module,Not a snapshot\n");
+      assertFalse(CatalogSnapshot.isSnapshot(file), "CSV file is not a snapshot");
+      assertTrue(snapshotRejected(file), "CSV file rejected by open");
+    } catch (IOException e) {
+      assertTrue(false, "Snapshot round trip: " + e.getMessage());
+    } finally {
+      if (file != null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+          // Temp file cleanup is best effort
+        }
+      }
+    }
+
+    System.out.println();
+  }
+
+  private static boolean snapshotRejected(Path file) {
+    try {
+      CatalogSnapshot.open(file).close();
+      return false;
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  private static int titleBytes(List<Module> catalog) {
+    int bytes = 0;
+    for (Module module : catalog) {
+      bytes += module.getTitle().getBytes(StandardCharsets.UTF_8).length;
+      for (Course course : module.getCourses()) {
+        bytes += course.getTitle().getBytes(StandardCharsets.UTF_8).length;
+        for (Lesson lesson : course.getLessons()) {
+          bytes += lesson.getTitle().getBytes(StandardCharsets.UTF_8).length;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  // ========================================================================
+  // LAZY CATALOG TESTS
+  // ========================================================================
+
+  private static void testLazyCatalog() {
+    printHeader("LAZY CATALOG TESTS");
+
+    List<Module> eager = CatalogSeeder.createDefaultCatalog();
+    try (OffHeapCatalogStore store = OffHeapCatalogStore.from(eager)) {
+      // Budget of 5 lessons: each course in the sample catalog has 2 or 3
+      LazyCatalog lazy = new LazyCatalog(store, 5);
+      List<Module> modules = lazy.modules();
+
+      // Test 1: Titles and totals come from the store without loading children
+      assertEquals("Data Science Essentials", modules.get(1).getTitle(), "Lazy module title");
+      assertEquals(eager.get(0).calculatePrice(), modules.get(0).calculatePrice(), "Lazy module price");
+      assertEquals(5, modules.get(1).summarize().getLessonCount(), "Lazy module lesson count");
+      assertFalse(modules.get(0).isLoaded(), "Module courses not loaded by price walk");
+
+      // Test 2: Courses load with their module, lessons with their course
+      List<Course> webCourses = modules.get(0).getCourses();
+      assertTrue(modules.get(0).isLoaded(), "Module courses loaded on access");
+      assertEquals(eager.get(0).getCourses().get(1).calculatePrice(), webCourses.get(1).calculatePrice(),
+          "Lazy course price");
+      assertFalse(webCourses.get(0).isLoaded(), "Course lessons not loaded by price walk");
+      assertEquals("CSS Styling", webCourses.get(0).getLessons().get(1).getTitle(), "Lazy lesson title");
+      assertEquals(3, lazy.loadedLessonCount(), "Loaded lesson count");
+
+      // Test 3: Loading past the budget evicts the coldest course but keeps its totals
+      webCourses.get(1).getLessons();
+      assertFalse(webCourses.get(0).isLoaded(), "Coldest course evicted");
+      assertTrue(webCourses.get(1).isLoaded(), "Newest course stays loaded");
+      assertTrue(lazy.loadedLessonCount() <= 5, "Cache stays within lesson budget");
+      assertEquals(eager.get(0).getCourses().get(0).calculatePrice(), webCourses.get(0).calculatePrice(),
+          "Evicted course keeps its price");
+      long loadsBefore = lazy.loadCount();
+      assertEquals(3, webCourses.get(0).getLessons().size(), "Evicted course reloads on access");
+      assertEquals(loadsBefore + 1, lazy.loadCount(), "Reload counted");
+
+      // Test 4: Changing a lesson pins its course and updates totals up the tree
+      Course python = modules.get(1).getCourses().get(0);
+      Lesson basics = python.getLessons().get(0);
+      double modulePrice = modules.get(1).calculatePrice();
+      basics.setPricePerHour(basics.getPricePerHour() + 10); // 2 hours
+      assertEquals(modulePrice + 20, modules.get(1).calculatePrice(), "Repriced lesson updates lazy module");
+      for (Course course : modules.get(2).getCourses()) {
+        course.getLessons();
+      }
+      assertTrue(python.isLoaded(), "Changed course is never evicted");
+      assertEquals(basics.getPricePerHour(), python.getLessons().get(0).getPricePerHour(), "Change survives cache pressure");
+
+      // Test 5: Adding a lesson pins the course too
+      Course stats = modules.get(1).getCourses().get(1);
+      stats.addLesson(new Lesson("Regression", 10.0, 1.0));
+      modules.get(0).getCourses().get(0).getLessons();
+      modules.get(0).getCourses().get(1).getLessons();
+      assertTrue(stats.isLoaded(), "Course with added lesson is never evicted");
+      assertEquals(3, stats.getLessons().size(), "Added lesson kept");
+
+      // Test 6: Reloaded lessons share title Strings with objects still held
+      Course html = modules.get(0).getCourses().get(0);
+      Lesson held = html.getLessons().get(1);
+      for (Course course : modules.get(2).getCourses()) {
+        course.getLessons();
+      }
+      assertFalse(html.isLoaded(), "Course evicted while a lesson is held");
+      assertTrue(held.getTitle() == html.getLessons().get(1).getTitle(), "Reload shares the held title");
+    }
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // TITLE DICTIONARY TESTS
+  // ========================================================================
+
+  private static void testTitleDictionary() {
+    printHeader("TITLE DICTIONARY TESTS");
+
+    // Test 1: Equal titles share one canonical String
+    TitleDictionary dictionary = new TitleDictionary();
+    String basics = dictionary.intern("HTML Basics");
+    String cafe = dictionary.intern("Café");
+    assertTrue(dictionary.intern(new String("HTML Basics")) == basics, "Repeated title returns the first instance");
+    assertTrue(dictionary.intern(new String("Café")) == cafe, "Intern returns the canonical instance");
+    assertEquals(2, dictionary.size(), "Distinct title count");
+
+    // Test 2: The report counts every use and everything the dictionary keeps
+    TitleDictionary.Report report = dictionary.report();
+    assertEquals(4, (int) report.getUses(), "Report counts uses");
+    assertEquals(2, report.getDistinct(), "Report counts distinct titles");
+    assertEquals(0, (int) report.getUtf8Bytes(), "Heap dictionary keeps no UTF-8 arena");
+    assertTrue(report.getDictionaryHeapBytes() > TitleDictionary.estimateStringBytes(basics)
+        + TitleDictionary.estimateStringBytes(cafe), "Report counts the map as well as the Strings");
+    assertTrue(report.getBytesSaved() < 0, "Two uses per title don't pay for the map");
+
+    // Test 3: Loaded catalogs share title instances
+    StringBuilder csv = new StringBuilder();
+    for (int m = 0; m < 10; m++) {
+      csv.append("module,Module ").append(m).append("\ncourse,Python Basics\n");
+      for (int l = 0; l < 20; l++) {
+        csv.append("lesson,Lesson ").append(l % 4).append(",10,1\n");
+      }
+    }
+    try {
+      TitleDictionary titles = new TitleDictionary();
+      List<Module> modules = CatalogLoader.load(new StringReader(csv.toString()), titles);
+      Lesson first = modules.get(0).getCourses().get(0).getLessons().get(1);
+      Lesson last = modules.get(9).getCourses().get(0).getLessons().get(5);
+      assertTrue(first.getTitle() == last.getTitle(), "Equal lesson titles share one String");
+      assertEquals(15, titles.size(), "10 modules, 1 course and 4 lesson titles");
+      assertTrue(titles.report().getNaiveHeapBytes() > 5 * titles.report().getDictionaryHeapBytes(),
+          "Title heap drops severalfold");
+    } catch (IOException e) {
+      assertTrue(false, "Repeated-title catalog loads: " + e.getMessage());
+    }
+
+    // Test 4: The off-heap arena stores each distinct title once
+    OffHeapCatalogStore.Builder builder = new OffHeapCatalogStore.Builder();
+    builder.startModule("M");
+    builder.startCourse("C");
+    for (int i = 0; i < 100; i++) {
+      builder.addLesson(i % 2 == 0 ? "Even" : "Odd", 10, 1);
+    }
+    try (OffHeapCatalogStore store = builder.build()) {
+      assertEquals(9, (int) store.titlesSegment().byteSize(), "Arena holds M, C, Even and Odd once");
+      assertEquals("Odd", store.lesson(99).getTitle(), "Deduplicated title decodes");
+      assertEquals(102, (int) builder.titleReport().getUses(), "Builder report counts every record");
+    }
+
+    // Test 5: The builder's title index grows past its first table and keeps only offsets on the heap
+    builder = new OffHeapCatalogStore.Builder();
+    builder.startModule("M");
+    builder.startCourse("C");
+    for (int i = 0; i < 6000; i++) {
+      builder.addLesson("Lesson " + (i % 3000), 10, 1);
+    }
+    TitleDictionary.Report builderReport = builder.titleReport();
+    try (OffHeapCatalogStore store = builder.build()) {
+      assertEquals(3002, builderReport.getDistinct(), "Each distinct title written once");
+      assertEquals(store.lesson(17).getTitle(), store.lesson(3017).getTitle(), "Repeated title decodes");
+      assertEquals("Lesson 2999", store.lesson(5999).getTitle(), "Last title decodes");
+      assertTrue(builderReport.getDictionaryHeapBytes() <= 16 + 8L * OffHeapCatalogStore.MAX_TITLE_INDEX,
+          "Builder title heap is bounded");
+      assertTrue(builderReport.getDictionaryHeapBytes() < builderReport.getNaiveHeapBytes() / 4,
+          "Builder keeps no title Strings");
+    }
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // RENDERING TESTS
+  // ========================================================================
+
+  private static void testRendering() {
+    printHeader("RENDERING TESTS");
+
+    String nl = System.lineSeparator();
+    Course course = new Course("Java");
+    course.addLesson(new Lesson("Intro", 10.0, 1.5));
+    Module module = new Module("Backend");
+    module.addCourse(course);
+
+    // Test 1: Lesson and course layout
+    assertEquals("> Lesson: Intro" + nl + "> Lesson Price: $15.00" + nl + "> Duration: 1.50 hours" + nl,
+        Render.toString(course.getLessons().get(0), "> "), "Lesson renders its three lines");
+    String expectedModule = "> Module: Backend" + nl
+        + "> Module Price: $15.00" + nl
+        + "> Total Duration: 1.50 hours" + nl
+        + "> Course 1:" + nl
+        + "  > Course: Java" + nl
+        + "  > Course Price: $15.00" + nl
+        + "  > Total Duration: 1.50 hours" + nl
+        + "  > Lessons:" + nl
+        + "  > Lesson 1:" + nl
+        + "    > Lesson: Intro" + nl
+        + "    > Lesson Price: $15.00" + nl
+        + "    > Duration: 1.50 hours" + nl
+        + "> -------------------" + nl;
+    assertEquals(expectedModule, Render.toString(module, "> "), "Module renders nested courses and lessons");
+
+    // Test 2: Rendering appends to the caller's buffer
+    StringBuilder screen = new StringBuilder("HEADER").append(nl);
+    module.render(screen, "> ");
+    assertEquals("HEADER" + nl + expectedModule, screen.toString(), "Render appends after existing content");
+
+    // Test 3: printDetails writes exactly the rendered text
+    List<Purchasable> items = new ArrayList<>();
+    items.add(new PracticeQuestionSetDecorator(module));
+    items.add(new Module("Extra"));
+    Purchasable checkout = new MultiModuleDiscount(new Cart(items));
+    PrintStream original = System.out;
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+    try {
+      checkout.printDetails("  ");
+    } finally {
+      System.setOut(original);
+    }
+    String rendered = Render.toString(checkout, "  ");
+    assertEquals(rendered, captured.toString(StandardCharsets.UTF_8), "printDetails prints the rendered text");
+    assertTrue(rendered.contains("    Add-On: Practice Question Set" + nl + "    Price: $10.00" + nl),
+        "Add-on lines rendered");
+    assertTrue(rendered.endsWith("Multi-Module Discount Applied: -$15.00" + nl + nl), "Discount line rendered");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // ONE-PASS RENDERING TESTS
+  // ========================================================================
+
+  private static void testOnePassRendering() {
+    printHeader("ONE-PASS RENDERING TESTS");
+
+    // Test 1: One slot per node, filled bottom-up
+    Module module = CatalogSeeder.createDefaultCatalog().get(0);
+    SummaryTape tape = new SummaryTape();
+    PurchaseSummary recorded = module.record(tape);
+    assertEquals(9, tape.size(), "Module, 2 courses and 6 lessons recorded");
+    assertTrue(recorded == module.summarize(), "Recorded module totals are the cached totals");
+    assertEquals(module.calculatePrice(), tape.next().getPrice(), "First slot holds the module");
+    assertEquals(module.getCourses().get(0).calculatePrice(), tape.next().getPrice(), "Second slot holds the first course");
+
+    // Test 2: Each lesson is summarized once per render, however many layers wrap the cart
+    int[] calls = new int[1];
+    List<Purchasable> items = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      items.add(new Lesson("L" + i, 10.0, 1.0) {
+        @Override
+        public PurchaseSummary summarize() {
+          calls[0]++;
+          return super.summarize();
+        }
+      });
+    }
+    Purchasable checkout = new MultiModuleDiscount(
+        new DevelopingCountryStudentDiscount(new SpecialDiscount(new Cart(items)), new Customer("S", true, true)));
+    String rendered = Render.toString(checkout, "");
+    assertEquals(50, calls[0], "One summarize per lesson for a three-layer render");
+    assertTrue(rendered.contains("Special Discount Applied: -$12.00"), "Eligibility read from recorded cart totals");
+    assertFalse(rendered.contains("Multi-Module Discount Applied"), "Ineligible discount not rendered");
+
+    // Test 3: A render after a change recomputes and re-caches totals in the same pass
+    Course big = new Course("Big");
+    for (int i = 0; i < 2000; i++) {
+      big.addLesson(new Lesson("L" + i, 10 + (i % 7) * 0.1, 0.5 + (i % 3) * 0.25));
+    }
+    Module parent = new Module("Parent");
+    parent.addCourse(big);
+    big.getLessons().get(0).setDuration(2.0);
+    double expected = SummaryAggregator.sum(big.getLessons()).getPrice();
+    SummaryTape bigTape = new SummaryTape();
+    parent.record(bigTape);
+    assertTrue(bigTape.next().getPrice() == expected, "Recorded totals match the pairwise reduction");
+    assertTrue(parent.calculatePrice() == expected, "Render pass refilled the module cache");
+
+    // Test 4: Store views record one slot and render from stored totals
+    try (OffHeapCatalogStore store = OffHeapCatalogStore.from(CatalogSeeder.createDefaultCatalog())) {
+      SummaryTape viewTape = new SummaryTape();
+      store.module(0).record(viewTape);
+      assertEquals(1, viewTape.size(), "Store view records a single slot");
+      assertEquals(Render.toString(module, "> "), Render.toString(store.module(0), "> "), "Store view renders like the object");
+    }
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // RENDER CACHE TESTS
+  // ========================================================================
+
+  private static void testRenderCache() {
+    printHeader("RENDER CACHE TESTS");
+
+    Module module = CatalogSeeder.createDefaultCatalog().get(0);
+    RenderCache cache = new RenderCache(RenderCache.DEFAULT_BUDGET_CHARS);
+
+    // Test 1: Second render of an unchanged node is the same cached string
+    String first = cache.render(module, "> ");
+    String second = cache.render(module, "> ");
+    assertTrue(first == second, "Unchanged module served from cache");
+    assertEquals(1, (int) cache.hits(), "One hit");
+    assertEquals(Render.toString(module, "> "), first, "Cached text matches a fresh render");
+    assertFalse(cache.render(module, "  ") == first, "Different indent is a different entry");
+
+    // Test 2: Changing a descendant re-renders the module
+    Lesson lesson = module.getCourses().get(1).getLessons().get(0);
+    lesson.setPricePerHour(lesson.getPricePerHour() + 1);
+    String repriced = cache.render(module, "> ");
+    assertFalse(repriced.equals(first), "Repriced lesson changes the module text");
+    assertEquals(Render.toString(module, "> "), repriced, "Re-rendered text is current");
+    lesson.setTitle("Modern JS");
+    assertTrue(cache.render(module, "> ").contains("Modern JS"), "Retitled lesson changes the module text");
+
+    // Test 3: Entries are evicted least recently used first under the budget
+    Course a = module.getCourses().get(0);
+    Course b = module.getCourses().get(1);
+    int courseChars = Math.max(Render.toString(a, "> ").length(), Render.toString(b, "> ").length());
+    RenderCache small = new RenderCache(courseChars + Render.toString(lesson, "> ").length());
+    small.render(a, "> ");
+    small.render(lesson, "> ");
+    small.render(a, "> "); // a becomes most recent
+    small.render(b, "> ");
+    assertTrue(small.usedChars() <= courseChars + Render.toString(lesson, "> ").length(), "Cache stays within budget");
+    long missesBefore = small.misses();
+    small.render(b, "> ");
+    assertEquals(missesBefore, small.misses(), "Newest entry kept");
+    small.render(lesson, "> ");
+    assertEquals(missesBefore + 1, small.misses(), "Least recently used entry evicted");
+
+    // Test 4: Text larger than the budget is rendered but not kept
+    RenderCache tiny = new RenderCache(10);
+    assertEquals(Render.toString(module, "> "), tiny.render(module, "> "), "Oversized text still rendered");
+    assertEquals(0, tiny.size(), "Oversized text not cached");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // MONEY FORMAT TESTS
+  // ========================================================================
+
+  private static void testMoneyFormat() {
+    printHeader("MONEY FORMAT TESTS");
+
+    // Test 1: Plain values
+    assertEquals("12.50", MoneyFormat.appendFixed2(new StringBuilder(), 12.5).toString(), "Pads to two decimals");
+    assertEquals("0.00", MoneyFormat.appendFixed2(new StringBuilder(), 0).toString(), "Zero");
+    assertEquals("$1234.57", MoneyFormat.appendMoney(new StringBuilder(), 1234.5678).toString(), "Money prefix and rounding");
+    assertEquals("2.50 hours", MoneyFormat.appendHours(new StringBuilder(), 2.5).toString(), "Hours suffix");
+    assertEquals("Total: $7.05", MoneyFormat.appendMoney(new StringBuilder("Total: "), 7.05).toString(),
+        "Appends after existing text");
+
+    // Test 2: Same digits as String.format, including half-cents and signs
+    double[] values = {1.005, 2.675, 0.125, 0.135, 1.115, 9.995, 999999.995, 0.994999, -1.005, -0.001, -0.0,
+        1.0 / 3, 2.0 / 3, 12.345, 8.345, 1e12 + 0.125, 0.5 * 5.01, Double.NaN, Double.POSITIVE_INFINITY, 1e20};
+    boolean allMatch = true;
+    StringBuilder out = new StringBuilder();
+    for (double value : values) {
+      out.setLength(0);
+      allMatch &= MoneyFormat.appendFixed2(out, value).toString().equals(String.format(Locale.ROOT, "%.2f", value));
+    }
+    Random random = new Random(7);
+    for (int i = 0; i < 200_000; i++) {
+      double value = (5 + random.nextInt(4_000) / 100.0) * (0.25 + random.nextInt(16) * 0.25);
+      out.setLength(0);
+      allMatch &= MoneyFormat.appendFixed2(out, value).toString().equals(String.format(Locale.ROOT, "%.2f", value));
+    }
+    assertTrue(allMatch, "MoneyFormat matches String.format on edge and random prices");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // EXACT MONEY TESTS
+  // ========================================================================
+
+  private static void testMoneyCents() {
+    printHeader("EXACT MONEY TESTS");
+
+    // Test 1: Conversions round to the nearest cent
+    assertTrue(Money.fromDollars(10.01) == 1001, "10.01 dollars is 1001 cents");
+    assertTrue(Money.fromDollars(0.1 + 0.2) == 30, "0.1 + 0.2 dollars is 30 cents");
+    assertTrue(Money.lessonPrice(1001, 0.5) == 501, "Lesson price rounds half-up to the cent");
+    assertEquals(12.5, Money.toDollars(1250), "Cents to dollars");
+    assertEquals("$-3.05", MoneyFormat.appendMoneyCents(new StringBuilder(), -305).toString(), "Negative cents format");
+    assertEquals("$1234567.89", MoneyFormat.appendMoneyCents(new StringBuilder(), 123456789).toString(),
+        "Large cents format");
+
+    // Test 2: A hundred nickels are exactly five dollars, whatever the order
+    Course nickels = new Course("Nickels");
+    for (int i = 0; i < 100; i++) {
+      nickels.addLesson(new Lesson("Nickel " + i, 0.05, 1.0));
+    }
+    assertTrue(nickels.calculatePriceCents() == 500, "100 x $0.05 is 500 cents");
+    assertTrue(nickels.calculatePrice() == 5.0, "100 x $0.05 is exactly $5.00");
+    List<Purchasable> mixed = new ArrayList<>();
+    Random random = new Random(11);
+    for (int i = 0; i < 5_000; i++) {
+      mixed.add(new Lesson("L" + i, random.nextInt(10_000) / 100.0, 0.25 + random.nextInt(8) * 0.25));
+    }
+    long forward = SummaryAggregator.sum(mixed, false).getPriceCents();
+    List<Purchasable> reversed = new ArrayList<>(mixed);
+    Collections.reverse(reversed);
+    assertTrue(forward == SummaryAggregator.sum(reversed, false).getPriceCents(), "Cents total is order independent");
+    assertTrue(forward == SummaryAggregator.sum(mixed, true).getPriceCents(), "Parallel cents total matches");
+
+    // Test 3: Cart add/remove returns to exactly zero
+    CartService service = new CartService();
+    for (Purchasable item : mixed.subList(0, 500)) {
+      service.addItem(item);
+    }
+    service.addItem(new Lesson("Dime", 0.1, 1.0));
+    for (int i = 0; i < 500; i++) {
+      service.removeAt(0);
+    }
+    assertTrue(service.calculateSubtotalCents() == 10, "Removing items leaves exactly the remaining cents");
+
+    // Test 4: Add-ons and discounts are whole cents
+    Module module = new Module("Money");
+    Course course = new Course("Rates");
+    course.addLesson(new Lesson("Odd rate", 10.01, 0.5));
+    module.addCourse(course);
+    Purchasable both = new LiveMentorSupportDecorator(new PracticeQuestionSetDecorator(module));
+    assertTrue(both.calculatePriceCents() == 501 + AddOn.PRACTICE_QUESTION_SET.getPriceCents()
+        + AddOn.LIVE_MENTOR_SUPPORT.getPriceCents(), "Add-on prices add in cents");
+    assertTrue(both.summarize().getPriceCents() == both.calculatePriceCents(), "Summary agrees with price");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // BATCH CHECKOUT TESTS
+  // ========================================================================
+
+  private static void testBatchCheckout() {
+    printHeader("BATCH CHECKOUT TESTS");
+
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    BatchCheckout batch = new BatchCheckout(catalog, 4, 3);
+    Module webDev = catalog.get(0);
+    Module dataSci = catalog.get(1);
+    Lesson firstLesson = webDev.getCourses().get(0).getLessons().get(0);
+
+    // Test 1: Same price as the interactive checkout
+    CartService service = new CartService();
+    service.addItem(new PracticeQuestionSetDecorator(webDev));
+    service.addItem(dataSci);
+    Customer ann = new Customer("Ann", true, true);
+    PriceBreakdown expected = DiscountProgram.compile(CartDecorator.checkoutDiscounts(service.toCart(), ann))
+        .evaluate(service.getLineItems(), service.getTotals());
+    String orders = "# id,name,student,developing,items\n"
+        + "A1,Ann,y,yes," + webDev.getCatalogId() + "+P," + dataSci.getCatalogId() + "\n"
+        + "\n"
+        + "A2,\"Doe, Jo\",n,n," + firstLesson.getCatalogId() + "\n";
+    StringWriter out = new StringWriter();
+    BatchCheckout.Result result = runBatch(batch, orders, out);
+    String[] lines = out.toString().split("\n");
+    assertEquals(BatchCheckout.HEADER, lines[0], "Results start with a header");
+    StringBuilder expectedLine = new StringBuilder("A1,OK,");
+    MoneyFormat.appendCents(expectedLine, expected.getSubtotal().getPriceCents()).append(',');
+    MoneyFormat.appendCents(expectedLine, expected.getSavingsCents()).append(',');
+    MoneyFormat.appendCents(expectedLine, expected.getFinalPriceCents());
+    expectedLine.append(",Special Discount;Developing Country Student Discount;Multi-Module Discount");
+    assertEquals(expectedLine.toString(), lines[1], "Batch order priced like the interactive checkout");
+    assertEquals("A2,OK,20.00,0.00,20.00,", lines[2], "Single lesson order without discounts");
+    assertEquals(3, lines.length, "Comments and blank lines produce no results");
+    assertTrue(result.getOrders() == 2 && result.getFailed() == 0, "Result counts orders");
+
+    // Test 2: Bad orders are reported in place and do not stop the run
+    orders = "B1,Bo,y,n,999\n"
+        + "B2,Bo,y,n," + firstLesson.getCatalogId() + "+P\n"
+        + "B3,Bo,maybe,n,0\n"
+        + "B4,Bo,y,n,0+X\n"
+        + "B5,Bo,y,n\n"
+        + "B6,Bo,n,n," + webDev.getCatalogId() + "\n";
+    out = new StringWriter();
+    result = runBatch(batch, orders, out);
+    lines = out.toString().split("\n");
+    assertEquals("B1,ERROR,,,,Line 1: Unknown catalog ID: 999", lines[1], "Unknown ID is reported");
+    assertTrue(lines[2].startsWith("B2,ERROR,,,,Line 2: add-ons are only sold with modules"), "Add-on on a lesson");
+    assertTrue(lines[3].startsWith("B3,ERROR,,,,\"Line 3: student flag"), "Bad flag is reported");
+    assertTrue(lines[4].startsWith("B4,ERROR,,,,\"Line 4: unknown add-on"), "Unknown add-on is reported");
+    assertTrue(lines[5].startsWith("B5,ERROR,,,,\"Line 5:"), "Order without items is reported");
+    assertTrue(lines[6].startsWith("B6,OK,"), "Good order after bad ones is priced");
+    assertTrue(result.getOrders() == 6 && result.getFailed() == 5, "Failed orders are counted");
+
+    // Test 3: Many small chunks on several threads come back in input order
+    StringBuilder many = new StringBuilder();
+    Random random = new Random(3);
+    CatalogRegistry registry = CatalogRegistry.index(catalog);
+    for (int i = 0; i < 2_000; i++) {
+      many.append("O").append(i).append(",Cust,").append(random.nextBoolean() ? "y" : "n").append(',')
+          .append(random.nextBoolean() ? "y" : "n");
+      int items = 1 + random.nextInt(4);
+      for (int j = 0; j < items; j++) {
+        int id = random.nextInt(registry.size());
+        many.append(',').append(id);
+        if (registry.get(id) instanceof Module && random.nextBoolean()) {
+          many.append("+M");
+        }
+      }
+      many.append('\n');
+    }
+    StringWriter parallel = new StringWriter();
+    runBatch(batch, many.toString(), parallel);
+    StringWriter sequential = new StringWriter();
+    result = runBatch(new BatchCheckout(catalog, 1, 10_000), many.toString(), sequential);
+    assertEquals(sequential.toString(), parallel.toString(), "Parallel results match a sequential run in order");
+    assertTrue(result.getOrders() == 2_000 && result.getFailed() == 0, "All generated orders priced");
+
+    System.out.println();
+  }
+
+  private static BatchCheckout.Result runBatch(BatchCheckout batch, String orders, StringWriter out) {
+    try {
+      return batch.run(new StringReader(orders), out);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  // ========================================================================
+  // PRICING SERVER TESTS
+  // ========================================================================
+
+  private static void testPricingServer() {
+    printHeader("PRICING SERVER TESTS");
+
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    Module webDev = catalog.get(0);
+    Module dataSci = catalog.get(1);
+    try (PricingServer server = new PricingServer(catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      server.start();
+      String base = "http://127.0.0.1:" + server.getAddress().getPort();
+      HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+      // Test 1: Browse
+      HttpResponse<String> response = get(client, base + "/catalog");
+      assertEquals(200, response.statusCode(), "Catalog lists modules");
+      String[] rows = response.body().split("\n");
+      assertEquals(PricingServer.CATALOG_HEADER, rows[0], "Catalog header");
+      assertEquals(catalog.size() + 1, rows.length, "One row per module");
+      assertEquals(webDev.getCatalogId() + ",module," + webDev.getTitle() + ","
+          + MoneyFormat.appendCents(new StringBuilder(), webDev.calculatePriceCents()) + ","
+          + MoneyFormat.appendFixed2(new StringBuilder(), webDev.calculateDuration()), rows[1], "Module row");
+      response = get(client, base + "/catalog?parent=" + webDev.getCatalogId());
+      assertEquals(webDev.getCourses().size() + 1, response.body().split("\n").length, "Children of a module");
+      response = get(client, base + "/catalog/" + dataSci.getCatalogId());
+      assertEquals(Render.toString(dataSci, ""), response.body(), "Item details match the console rendering");
+
+      // Test 2: Quote and checkout price like the console
+      OrderPricer pricer = new OrderPricer(catalog);
+      Customer ann = new Customer("Ann", true, true);
+      PriceBreakdown expected = pricer.price(
+          List.of(new PracticeQuestionSetDecorator(webDev), dataSci), ann);
+      response = get(client, base + "/quote?items=" + webDev.getCatalogId() + "+P," + dataSci.getCatalogId()
+          + "&student=yes&developing=y");
+      assertEquals(200, response.statusCode(), "Quote succeeds");
+      assertEquals(PricingServer.QUOTE_HEADER + "\n" + OrderPricer.appendResult(new StringBuilder(), expected) + "\n",
+          response.body(), "Quote matches OrderPricer");
+      response = client.send(HttpRequest.newBuilder(URI.create(base + "/checkout"))
+          .POST(HttpRequest.BodyPublishers.ofString("Ann,y,y," + webDev.getCatalogId() + "+P," + dataSci.getCatalogId()))
+          .build(), HttpResponse.BodyHandlers.ofString());
+      StringBuilder receipt = new StringBuilder();
+      Render.receipt(receipt, ann, expected);
+      assertEquals(200, response.statusCode(), "Checkout succeeds");
+      assertEquals(receipt.toString(), response.body(), "Checkout returns the console receipt");
+
+      // Test 3: Errors
+      assertEquals(400, get(client, base + "/quote?items=999").statusCode(), "Unknown item is a bad request");
+      assertEquals(400, get(client, base + "/quote").statusCode(), "Missing items is a bad request");
+      assertEquals(400, get(client, base + "/quote?items=0&student=maybe").statusCode(), "Bad flag is a bad request");
+      assertEquals(404, get(client, base + "/catalog/999").statusCode(), "Unknown catalog item is not found");
+      assertEquals(404, get(client, base + "/nothing").statusCode(), "Unknown path is not found");
+      assertEquals(405, get(client, base + "/checkout").statusCode(), "GET checkout is not allowed");
+
+      // Test 4: Many concurrent quotes all get the same answer
+      String quoteUri = base + "/quote?items=" + webDev.getCatalogId() + "+M&student=y";
+      String single = get(client, quoteUri).body();
+      int concurrent = 1_000;
+      AtomicInteger matching = new AtomicInteger();
+      try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < concurrent; i++) {
+          clients.submit(() -> {
+            HttpResponse<String> quote = get(client, quoteUri);
+            if (quote.statusCode() == 200 && quote.body().equals(single)) {
+              matching.incrementAndGet();
+            }
+          });
+        }
+      }
+      assertEquals(concurrent, matching.get(), "Concurrent quotes all succeed with the same price");
+    } catch (IOException | InterruptedException e) {
+      assertTrue(false, "Pricing server test failed: " + e);
+    }
+
+    System.out.println();
+  }
+
+  private static HttpResponse<String> get(HttpClient client, String uri) {
+    try {
+      return client.send(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString());
+    } catch (IOException | InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  // ========================================================================
+  // SESSION REGISTRY TESTS
+  // ========================================================================
+
+  private static void testSessionRegistry() {
+    printHeader("SESSION REGISTRY TESTS");
+
+    // Test 1: Sessions are independent carts
+    SessionRegistry registry = new SessionRegistry(3, 100);
+    SessionRegistry.Session a = registry.create();
+    SessionRegistry.Session b = registry.create();
+    assertFalse(a.getId().equals(b.getId()), "Sessions get distinct IDs");
+    a.getCart().addItem(new Lesson("Only in A", 10.0, 1.0));
+    assertTrue(registry.get(a.getId()) == a, "Lookup finds the session");
+    assertTrue(registry.get(b.getId()).getCart().isEmpty(), "Carts are per session");
+    assertTrue(registry.get("missing") == null, "Unknown ID finds nothing");
+
+    // Test 2: Idle sessions expire; use keeps a session alive
+    registry.advance();
+    registry.advance();
+    registry.get(a.getId()); // Tick 2
+    registry.advance(); // Tick 3: b was last used at tick 0
+    assertTrue(registry.get(b.getId()) == null, "Idle session expired");
+    assertTrue(registry.get(a.getId()) == a, "Used session survives"); // Tick 3 again
+    registry.advance();
+    registry.advance();
+    assertTrue(registry.get(a.getId()) == a, "Session survives until a full idle period passes");
+    for (int i = 0; i < 3; i++) {
+      registry.advance();
+    }
+    assertEquals(0, registry.size(), "All idle sessions expired");
+    assertTrue(registry.getExpiredCount() == 2, "Expirations counted");
+    SessionRegistry.Session c = registry.create();
+    assertTrue(registry.remove(c.getId()), "Remove ends a session");
+    assertFalse(registry.remove(c.getId()), "Removing twice finds nothing");
+
+    // Test 3: At capacity the session closest to expiring is evicted
+    SessionRegistry small = new SessionRegistry(10, 3);
+    SessionRegistry.Session first = small.create();
+    small.advance();
+    SessionRegistry.Session second = small.create();
+    small.advance();
+    SessionRegistry.Session third = small.create();
+    small.get(first.getId()); // Now the most recently used
+    SessionRegistry.Session fourth = small.create();
+    assertEquals(3, small.size(), "Capacity is kept");
+    assertTrue(small.get(second.getId()) == null, "Least recently used session was evicted");
+    assertTrue(small.get(first.getId()) != null && small.get(third.getId()) != null
+        && small.get(fourth.getId()) != null, "Other sessions are kept");
+    assertTrue(small.getEvictedCount() == 1, "Evictions counted");
+
+    // Test 4: Many threads creating, using and expiring sessions concurrently
+    SessionRegistry shared = new SessionRegistry(5, 10_000);
+    AtomicInteger lost = new AtomicInteger();
+    try (ExecutorService threads = Executors.newFixedThreadPool(8)) {
+      for (int t = 0; t < 8; t++) {
+        threads.submit(() -> {
+          for (int i = 0; i < 5_000; i++) {
+            SessionRegistry.Session session = shared.create();
+            if (shared.get(session.getId()) != session && shared.get(session.getId()) != null) {
+              lost.incrementAndGet();
+            }
+            if (i % 100 == 0) {
+              shared.advance();
+            }
+          }
+        });
+      }
+    }
+    assertEquals(0, lost.get(), "A session ID never maps to another session");
+    assertTrue(shared.size() <= 10_000, "Capacity holds under concurrent creation");
+    for (int i = 0; i < 6; i++) {
+      shared.advance();
+    }
+    assertEquals(0, shared.size(), "Concurrent sessions all expire");
+
+    // Test 5: Hundreds of thousands of carts
+    SessionRegistry large = new SessionRegistry(60, 300_000);
+    Lesson lesson = new Lesson("Shared", 10.0, 1.0);
+    for (int i = 0; i < 300_000; i++) {
+      large.create().getCart().addItem(lesson);
+    }
+    assertEquals(300_000, large.size(), "300,000 live carts");
+    long evictStart = System.nanoTime();
+    for (int i = 0; i < 10_000; i++) {
+      large.create();
+    }
+    assertEquals(300_000, large.size(), "Cap holds at scale");
+    assertTrue(System.nanoTime() - evictStart < 5_000_000_000L, "Evicting at capacity stays cheap");
+    for (int i = 0; i < 61; i++) {
+      large.advance();
+    }
+    assertEquals(0, large.size(), "Large registry expires on ticks");
+
+    // Test 6: Carts over HTTP
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    Module webDev = catalog.get(0);
+    Module dataSci = catalog.get(1);
+    SessionRegistry httpSessions = new SessionRegistry(10, 100);
+    try (PricingServer server = new PricingServer(catalog,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), httpSessions)) {
+      server.start();
+      String base = "http://127.0.0.1:" + server.getAddress().getPort();
+      HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      HttpResponse<String> created = send(client, "POST", base + "/cart", "");
+      assertEquals(201, created.statusCode(), "Cart session created");
+      String cartUri = base + "/cart/" + created.body();
+      send(client, "POST", cartUri + "/items?items=" + webDev.getCatalogId() + "+P", "");
+      HttpResponse<String> quote = send(client, "POST", cartUri + "/items?items=" + dataSci.getCatalogId()
+          + "&student=y&developing=y", "");
+      OrderPricer pricer = new OrderPricer(catalog);
+      Customer ann = new Customer("Ann", true, true);
+      PriceBreakdown expected = pricer.price(List.of(new PracticeQuestionSetDecorator(webDev), dataSci), ann);
+      assertEquals(PricingServer.QUOTE_HEADER + "\n" + OrderPricer.appendResult(new StringBuilder(), expected) + "\n",
+          quote.body(), "Cart quote matches a one-shot quote");
+      quote = send(client, "DELETE", cartUri + "/items/1", "");
+      expected = pricer.price(List.of(dataSci), new Customer("", false, false));
+      assertEquals(PricingServer.QUOTE_HEADER + "\n" + OrderPricer.appendResult(new StringBuilder(), expected) + "\n",
+          quote.body(), "Removing an item requotes the cart");
+      HttpResponse<String> receipt = send(client, "POST", cartUri + "/checkout", "Ann,y,y");
+      StringBuilder expectedReceipt = new StringBuilder();
+      Render.receipt(expectedReceipt, ann, pricer.price(List.of(dataSci), ann));
+      assertEquals(expectedReceipt.toString(), receipt.body(), "Cart checkout returns the receipt");
+      assertEquals(400, send(client, "POST", cartUri + "/checkout", "Ann,y,y").statusCode(), "Empty cart cannot check out");
+      assertEquals(200, send(client, "DELETE", cartUri, "").statusCode(), "Session ended");
+      assertEquals(404, send(client, "GET", cartUri, "").statusCode(), "Ended session is gone");
+
+      // Test 7: A cart holds at most MAX_CART_ITEMS items
+      String fullUri = base + "/cart/" + send(client, "POST", base + "/cart", "").body();
+      String lessonId = String.valueOf(webDev.getCourses().get(0).getLessons().get(0).getCatalogId());
+      String fill = String.join(",", Collections.nCopies(PricingServer.MAX_CART_ITEMS, lessonId));
+      assertEquals(200, send(client, "POST", fullUri + "/items?items=" + fill, "").statusCode(), "Cart filled to the limit");
+      HttpResponse<String> over = send(client, "POST", fullUri + "/items?items=" + lessonId, "");
+      assertEquals(400, over.statusCode(), "Item past the limit is refused");
+      assertEquals("a cart holds at most " + PricingServer.MAX_CART_ITEMS + " items", over.body(), "Limit is explained");
+      String id = fullUri.substring(fullUri.lastIndexOf('/') + 1);
+      assertEquals(PricingServer.MAX_CART_ITEMS, httpSessions.get(id).getCart().size(), "Refused request adds nothing");
+    } catch (IOException e) {
+      assertTrue(false, "Cart session test failed: " + e);
+    }
+
+    // Test 8: Ending sessions doesn't grow the expiry wheel
+    SessionRegistry churn = new SessionRegistry(1_800, 10);
+    for (int i = 0; i < 10_000; i++) {
+      churn.remove(churn.create().getId());
+    }
+    assertEquals(0, churn.size(), "Ended sessions are gone");
+    assertTrue(churn.wheelSize() <= 2 * 10, "Wheel holds at most twice the cap after create/remove churn");
+
+    System.out.println();
+  }
+
+  private static HttpResponse<String> send(HttpClient client, String method, String uri, String body) {
+    try {
+      return client.send(HttpRequest.newBuilder(URI.create(uri))
+          .method(method, HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    } catch (IOException | InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  // ========================================================================
+  // CONCURRENT CART SERVICE TESTS
+  // ========================================================================
+
+  private static void testConcurrentCartService() {
+    printHeader("CONCURRENT CART SERVICE TESTS");
+
+    // Test 1: Writers add and remove while readers check every snapshot is self-consistent
+    CartService cart = new CartService();
+    int writers = 6;
+    int addsPerWriter = 3_000;
+    AtomicInteger removed = new AtomicInteger();
+    AtomicInteger inconsistent = new AtomicInteger();
+    AtomicInteger reads = new AtomicInteger();
+    AtomicBoolean writing = new AtomicBoolean(true);
+    try (ExecutorService threads = Executors.newFixedThreadPool(writers + 2)) {
+      List<Future<?>> writerTasks = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        int writer = w;
+        writerTasks.add(threads.submit(() -> {
+          for (int i = 0; i < addsPerWriter; i++) {
+            cart.addItem(new Lesson("W" + writer + "-" + i, (i % 97) / 100.0 + 1, 1.0));
+            if (i % 3 == 0) {
+              try {
+                cart.removeAt(0);
+                removed.incrementAndGet();
+              } catch (IndexOutOfBoundsException e) {
+                // Another writer emptied the cart first
+              }
+            }
+          }
+        }));
+      }
+      for (int r = 0; r < 2; r++) {
+        threads.submit(() -> {
+          while (writing.get()) {
+            CartService.Snapshot snapshot = cart.snapshot();
+            long cents = 0;
+            for (int i = 0; i < snapshot.size(); i++) {
+              cents += snapshot.getItemSummary(i).getPriceCents();
+            }
+            if (cents != snapshot.getTotals().getPriceCents() || snapshot.getTotals().getLessonCount() != snapshot.size()) {
+              inconsistent.incrementAndGet();
+            }
+            reads.incrementAndGet();
+          }
+        });
+      }
+      for (Future<?> task : writerTasks) {
+        task.get();
+      }
+      writing.set(false);
+    } catch (InterruptedException | ExecutionException e) {
+      assertTrue(false, "Cart stress test failed: " + e);
+    }
+    assertEquals(writers * addsPerWriter - removed.get(), cart.size(), "No add or remove is lost");
+    assertEquals(0, inconsistent.get(), "Readers only see consistent snapshots");
+    assertTrue(reads.get() > 0, "Readers ran alongside writers");
+    long cents = 0;
+    for (Purchasable item : cart.getItems()) {
+      cents += item.calculatePriceCents();
+    }
+    assertTrue(cents == cart.calculateSubtotalCents(), "Final totals match the items left");
+
+    // Test 2: Draining while adding loses and duplicates nothing
+    CartService orders = new CartService();
+    AtomicInteger drained = new AtomicInteger();
+    Lesson lesson = new Lesson("Item", 1.0, 1.0);
+    try (ExecutorService threads = Executors.newFixedThreadPool(4)) {
+      for (int t = 0; t < 3; t++) {
+        threads.submit(() -> {
+          for (int i = 0; i < 5_000; i++) {
+            orders.addItem(lesson);
+          }
+        });
+      }
+      threads.submit(() -> {
+        for (int i = 0; i < 2_000; i++) {
+          drained.addAndGet(orders.drain().size());
+        }
+      });
+    }
+    assertEquals(15_000, drained.get() + orders.size(), "Every item is drained once or still in the cart");
+
+    // Test 3: A snapshot does not change when the cart does
+    CartService.Snapshot before = orders.snapshot();
+    int sizeBefore = before.size();
+    orders.addItem(lesson);
+    assertEquals(sizeBefore, before.size(), "Snapshots are immutable");
+    assertEquals(sizeBefore + 1, orders.size(), "Cart moved on");
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // CART SNAPSHOT TESTS
+  // ========================================================================
+
+  private static void testCartSnapshots() {
+    printHeader("CART SNAPSHOT TESTS");
+
+    // Test 1: A persistent list reads like an ArrayList across leaf and level boundaries
+    List<Integer> expected = new ArrayList<>();
+    PersistentList<Integer> list = PersistentList.empty();
+    PersistentList<Integer> atThousand = null;
+    for (int i = 0; i < 2_000; i++) {
+      list = list.plus(i);
+      expected.add(i);
+      if (i == 999) {
+        atThousand = list;
+      }
+    }
+    assertTrue(list.asList().equals(expected), "2000 appends read back in order");
+    assertEquals(1_000, atThousand.size(), "Earlier versions keep their size");
+    assertEquals(999, atThousand.get(999).intValue(), "Earlier versions keep their elements");
+
+    // Test 2: Removing the last element walks back through the same boundaries
+    PersistentList<Integer> shrinking = list;
+    boolean matches = true;
+    for (int size = 2_000; size > 0; size--) {
+      matches &= shrinking.size() == size && shrinking.get(size - 1) == size - 1;
+      shrinking = shrinking.minusLast();
+    }
+    assertTrue(matches && shrinking.isEmpty(), "minusLast mirrors plus down to empty");
+    assertEquals(2_000, list.size(), "minusLast leaves the original intact");
+
+    // Test 3: Removing from the middle matches ArrayList.remove
+    for (int index : new int[] {1_999, 1_056, 1_023, 500, 32, 31, 0}) {
+      list = list.minus(index);
+      expected.remove(index);
+    }
+    assertTrue(list.asList().equals(expected), "minus at leaf edges and ends matches ArrayList");
+    Random random = new Random(24);
+    while (expected.size() > 100) {
+      int index = random.nextInt(expected.size());
+      list = list.minus(index);
+      expected.remove(index);
+    }
+    assertTrue(list.asList().equals(expected), "Random removals down to 100 elements match ArrayList");
+    try {
+      list.minus(list.size());
+      assertTrue(false, "Out-of-range removal should throw");
+    } catch (IndexOutOfBoundsException e) {
+      assertTrue(true, "Out-of-range removal throws IndexOutOfBoundsException");
+    }
+
+    // Test 4: A checkout priced from a snapshot is not affected by later cart changes
+    CartService cart = new CartService();
+    Module module = new Module("Snapshot Module");
+    Course course = new Course("Snapshot Course");
+    course.addLesson(new Lesson("Snapshot Lesson", 40.0, 2.0));
+    module.addCourse(course);
+    cart.addItem(module);
+    cart.addItem(new Lesson("Extra", 12.5, 1.0));
+    Customer customer = new Customer("Ana", true, true);
+    CartService.Snapshot checkout = cart.snapshot();
+    PriceBreakdown priced = OrderPricer.price(checkout, customer);
+    cart.clear();
+    cart.addItem(new Lesson("Later", 99.0, 1.0));
+    PriceBreakdown repriced = OrderPricer.price(checkout, customer);
+    assertEquals(2, checkout.size(), "Clearing the cart leaves the checkout snapshot intact");
+    assertTrue(priced.getFinalPriceCents() == repriced.getFinalPriceCents(), "The snapshot prices the same after the cart changes");
+    assertEquals(2, priced.getLineItems().size(), "Receipt lines come from the snapshot");
+
+    // Test 5: toCart shares the snapshot's items and copies them only if the cart is changed
+    Cart shared = checkout.toCart();
+    assertTrue(shared.getItems() == checkout.getItems(), "toCart reads the snapshot in place");
+    assertTrue(shared.calculatePriceCents() == checkout.getTotals().getPriceCents(), "Shared cart prices like the snapshot");
+    shared.addItem(new Lesson("Own", 5.0, 1.0));
+    assertEquals(3, shared.getItems().size(), "A changed shared cart holds its own items");
+    assertEquals(2, checkout.size(), "Changing the shared cart leaves the snapshot alone");
+    assertTrue(shared.removeItem(module), "Items copied from the snapshot can be removed");
+
+    // Test 6: Cart lines remove from any position and match ArrayList through compactions
+    RankedList<Integer> lines = RankedList.empty();
+    List<Integer> mirror = new ArrayList<>();
+    for (int i = 0; i < 3_000; i++) {
+      lines = lines.plus(i);
+      mirror.add(i);
+    }
+    RankedList<Integer> full = lines;
+    Random shuffle = new Random(6);
+    boolean same = true;
+    for (int round = 0; round < 20_000; round++) {
+      if (mirror.isEmpty() || shuffle.nextInt(3) == 0) {
+        lines = lines.plus(round);
+        mirror.add(round);
+      } else {
+        int index = shuffle.nextInt(mirror.size());
+        lines = lines.minus(index);
+        mirror.remove(index);
+      }
+      if (round % 1_000 == 0) {
+        same &= lines.asList().equals(mirror);
+      }
+    }
+    assertTrue(same && lines.asList().equals(mirror), "Random adds and removals match ArrayList");
+    assertEquals(3_000, full.size(), "Earlier versions keep their size");
+    assertEquals(1_234, full.get(1_234).intValue(), "Earlier versions keep their elements");
+    try {
+      lines.minus(lines.size());
+      assertTrue(false, "Out-of-range line removal should throw");
+    } catch (IndexOutOfBoundsException e) {
+      assertTrue(true, "Out-of-range line removal throws IndexOutOfBoundsException");
+    }
+
+    System.out.println();
+  }
+
+  // ========================================================================
+  // CATALOG VERSION TESTS
+  // ========================================================================
+
+  private static void testCatalogVersions() {
+    printHeader("CATALOG VERSION TESTS");
+
+    // Test 1: Replacing an element copies one path and leaves the old list alone
+    PersistentList<Integer> numbers = PersistentList.empty();
+    for (int i = 0; i < 1_100; i++) {
+      numbers = numbers.plus(i);
+    }
+    PersistentList<Integer> changed = numbers.with(5, -5).with(1_090, -1_090);
+    assertEquals(-5, changed.get(5).intValue(), "with replaces in the trie");
+    assertEquals(-1_090, changed.get(1_090).intValue(), "with replaces in the tail");
+    assertEquals(5, numbers.get(5).intValue(), "with leaves the original intact");
+
+    // Test 2: Repricing a lesson publishes a new version and shares everything off its path
+    List<Module> catalog = CatalogSeeder.createDefaultCatalog();
+    CatalogVersions versions = new CatalogVersions(catalog);
+    CatalogVersions.Version first = versions.current();
+    Module webDev = catalog.get(0);
+    Course course = webDev.getCourses().get(0);
+    Lesson lesson = course.getLessons().get(0);
+    long webDevBefore = webDev.calculatePriceCents();
+    CatalogVersions.Version second = versions.repriceLesson(lesson.getCatalogId(), lesson.getPricePerHour() + 10, lesson.calculateDuration());
+    assertTrue(versions.current() == second, "The new version is published");
+    assertTrue(second.getNumber() == first.getNumber() + 1, "Versions are numbered");
+    long delta = second.getLesson(lesson.getCatalogId()).calculatePriceCents() - lesson.calculatePriceCents();
+    assertTrue(delta > 0, "The lesson copy has the new price");
+    assertTrue(second.get(webDev.getCatalogId()).calculatePriceCents() == webDevBefore + delta, "Module total includes the new price");
+    assertTrue(first.get(webDev.getCatalogId()) == webDev && webDev.calculatePriceCents() == webDevBefore, "A pinned version keeps its prices");
+    assertTrue(second.getModules().get(1) == first.getModules().get(1), "Untouched modules are shared");
+    Module newWebDev = second.getModules().get(0);
+    assertTrue(newWebDev.getCourses().get(1) == webDev.getCourses().get(1), "Untouched courses are shared");
+    assertTrue(second.getCourse(course.getCatalogId()).getLessons().get(1) == course.getLessons().get(1), "Untouched lessons are shared");
+    assertEquals(lesson.getCatalogId(), second.getLesson(lesson.getCatalogId()).getCatalogId(), "Copies keep their catalog IDs");
+
+    // Test 3: A course shared by two modules is updated under both
+    Lesson sharedLesson = new Lesson("Shared Lesson", 20.0, 1.0);
+    Course sharedCourse = new Course("Shared Course", new ArrayList<>(List.of(sharedLesson)));
+    Module left = new Module("Left", new ArrayList<>(List.of(sharedCourse)));
+    Module right = new Module("Right", new ArrayList<>(List.of(sharedCourse)));
+    CatalogVersions shared = new CatalogVersions(List.of(left, right));
+    CatalogVersions.Version repriced = shared.repriceLesson(sharedLesson.getCatalogId(), 30.0, 1.0);
+    assertTrue(repriced.getModules().get(0).calculatePriceCents() == 3_000, "First parent sees the new price");
+    assertTrue(repriced.getModules().get(1).calculatePriceCents() == 3_000, "Second parent sees the new price");
+    assertTrue(left.calculatePriceCents() == 2_000, "The old version is unchanged");
+
+    // Test 4: Adding and removing lessons
+    Lesson added = new Lesson("Added Lesson", 50.0, 2.0);
+    CatalogVersions.Version withLesson = shared.addLesson(sharedCourse.getCatalogId(), added);
+    assertTrue(withLesson.get(added.getCatalogId()) == added, "An added lesson gets the next ID");
+    assertTrue(withLesson.getModules().get(0).calculatePriceCents() == 13_000, "Added lesson is priced in");
+    CatalogVersions.Version without = shared.removeLesson(added.getCatalogId());
+    assertTrue(without.getModules().get(1).calculatePriceCents() == 3_000, "Removed lesson is priced out");
+    try {
+      without.get(added.getCatalogId());
+      assertTrue(false, "A removed ID should be unknown");
+    } catch (IllegalArgumentException e) {
+      assertTrue(true, "A removed ID is unknown");
+    }
+
+    // Test 5: Quotes pinned to a version stay consistent while prices change
+    CatalogVersions live = new CatalogVersions(CatalogSeeder.createDefaultCatalog());
+    Module liveModule = live.current().getModules().get(0);
+    Lesson liveLesson = liveModule.getCourses().get(0).getLessons().get(0);
+    int lessonId = liveLesson.getCatalogId();
+    int moduleId = liveModule.getCatalogId();
+    long rest = liveModule.calculatePriceCents() - liveLesson.calculatePriceCents();
+    AtomicInteger inconsistent = new AtomicInteger();
+    AtomicInteger quotes = new AtomicInteger();
+    AtomicBoolean repricing = new AtomicBoolean(true);
+    try (ExecutorService threads = Executors.newFixedThreadPool(3)) {
+      for (int r = 0; r < 2; r++) {
+        threads.submit(() -> {
+          while (repricing.get()) {
+            OrderPricer pricer = new OrderPricer(live.current());
+            long lessonCents = pricer.item(String.valueOf(lessonId)).calculatePriceCents();
+            long moduleCents = pricer.item(String.valueOf(moduleId)).calculatePriceCents();
+            if (moduleCents - lessonCents != rest) {
+              inconsistent.incrementAndGet();
+            }
+            quotes.incrementAndGet();
+          }
+        });
+      }
+      Future<?> writer = threads.submit(() -> {
+        for (int i = 0; i < 2_000; i++) {
+          live.repriceLesson(lessonId, 10 + i % 7, liveLesson.calculateDuration());
+        }
+      });
+      writer.get();
+      repricing.set(false);
+    } catch (InterruptedException | ExecutionException e) {
+      assertTrue(false, "Catalog version stress test failed: " + e);
+    }
+    assertEquals(0, inconsistent.get(), "Every quote sees one consistent catalog");
+    assertTrue(quotes.get() > 0, "Quotes ran alongside repricing");
+    assertTrue(live.current().getNumber() == 2_001, "Every reprice published a version");
+
+    // Test 6: The server reprices a lesson and quotes the new price
+    try (PricingServer server = new PricingServer(CatalogSeeder.createDefaultCatalog(),
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      server.start();
+      String base = "http://127.0.0.1:" + server.getAddress().getPort();
+      HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      Lesson served = server.getCatalog().current().getModules().get(0).getCourses().get(0).getLessons().get(0);
+      int id = served.getCatalogId();
+      HttpResponse<String> response = send(client, "PUT", base + "/catalog/" + id + "?rate=40&hours=2", "");
+      assertEquals(200, response.statusCode(), "Reprice succeeds");
+      assertEquals(PricingServer.CATALOG_HEADER + "\n" + id + ",lesson," + served.getTitle() + ",80.00,2.00\n",
+          response.body(), "Reprice replies with the new row");
+      response = get(client, base + "/quote?items=" + id);
+      assertTrue(response.body().endsWith("\n80.00,0.00,80.00,\n"), "Quotes use the new price");
+      assertEquals(400, send(client, "PUT", base + "/catalog/" + id + "?rate=-1", "").statusCode(), "Negative rate is rejected");
+      assertEquals(404, send(client, "PUT", base + "/catalog/99999?rate=1", "").statusCode(), "Unknown lesson is 404");
+
+      // Test 7: Unset values come from the version replaced; a removed lesson is 404
+      server.getCatalog().repriceLesson(id, 25.0, 3.0);
+      response = send(client, "PUT", base + "/catalog/" + id + "?hours=4", "");
+      assertEquals(PricingServer.CATALOG_HEADER + "\n" + id + ",lesson," + served.getTitle() + ",100.00,4.00\n",
+          response.body(), "Missing rate comes from the latest version");
+      server.getCatalog().removeLesson(id);
+      assertEquals(404, send(client, "PUT", base + "/catalog/" + id + "?rate=1", "").statusCode(), "Removed lesson is 404");
+      int courseId = server.getCatalog().current().getModules().get(0).getCourses().get(0).getCatalogId();
+      CatalogVersions.Version reprices = server.getCatalog().current();
+      try {
+        server.getCatalog().updateLesson(courseId, unchanged -> unchanged);
+        assertTrue(false, "A course should not be updated as a lesson");
+      } catch (IllegalArgumentException e) {
+        assertTrue(server.getCatalog().current() == reprices, "A failed update publishes nothing");
+      }
+
+      // Test 8: A handler that fails unexpectedly still replies, with 500
+      Lesson broken = new Lesson("Broken", 1.0, 1.0) {
+        @Override
+        public void render(StringBuilder out, String indent, SummaryTape tape) {
+          throw new IllegalStateException("render failed");
+        }
+      };
+      server.getCatalog().addLesson(courseId, broken);
+      response = get(client, base + "/catalog/" + broken.getCatalogId());
+      assertEquals(500, response.statusCode(), "Unexpected failure is 500");
+      assertEquals(200, get(client, base + "/catalog").statusCode(), "The server keeps serving after a 500");
+    } catch (IOException e) {
+      assertTrue(false, "Reprice over HTTP failed: " + e);
+    }
+
+    System.out.println();
+  }
+
   // ========================================================================
   // UTILITY METHODS
   // ========================================================================
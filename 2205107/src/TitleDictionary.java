@@ -0,0 +1,103 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Interns catalog titles, so a title repeated across thousands of lessons is one String on the
+// heap. Used by CatalogLoader while it builds an object catalog, which holds every title anyway.
+// Its Report also describes OffHeapCatalogStore.Builder, which keeps title bytes off-heap.
+final class TitleDictionary {
+  // Rough HashMap costs with compressed oops: the map object and its table's header, a 4-byte
+  // slot per bucket (at least 16, kept at most 75% full) and a 32-byte node per entry
+  private static final long MAP_BYTES = 48 + 16;
+  private static final long MAP_NODE_BYTES = 32;
+
+  private final Map<String, String> titles = new HashMap<>();
+
+  // Usage counters for the report
+  private long uses;
+  private long naiveHeapBytes; // What one String per use would have cost
+  private long canonicalHeapBytes; // The interned Strings
+
+  // Canonical instance of title, so equal titles share one String on the heap
+  String intern(String title) {
+    uses++;
+    naiveHeapBytes += estimateStringBytes(title);
+    String canonical = titles.putIfAbsent(title, title);
+    if (canonical != null) {
+      return canonical;
+    }
+    canonicalHeapBytes += estimateStringBytes(title);
+    return title;
+  }
+
+  int size() {
+    return titles.size();
+  }
+
+  // Counts the map as well as the Strings, as both stay on the heap while the dictionary does
+  Report report() {
+    int needed = Math.max(1, (int) Math.ceil(titles.size() / 0.75));
+    int buckets = Math.max(16, Integer.highestOneBit(needed * 2 - 1)); // needed rounded up to a power of two
+    long mapHeapBytes = MAP_BYTES + 4L * buckets + MAP_NODE_BYTES * titles.size();
+    return new Report(uses, titles.size(), naiveHeapBytes, canonicalHeapBytes + mapHeapBytes, 0);
+  }
+
+  // Approximate heap cost of a String with compact strings: 24-byte object plus its byte[]
+  // (16-byte header, 1 byte per Latin-1 char or 2 otherwise), rounded to 8 bytes
+  static long estimateStringBytes(String s) {
+    boolean latin1 = true;
+    for (int i = 0; i < s.length() && latin1; i++) {
+      latin1 = s.charAt(i) <= 0xFF;
+    }
+    long array = 16 + (latin1 ? s.length() : 2L * s.length());
+    return 24 + ((array + 7) & ~7L);
+  }
+
+  // dictionaryHeapBytes is everything the deduplicating side keeps on the heap; utf8Bytes is the
+  // off-heap title arena, 0 when titles live only on the heap
+  static final class Report {
+    private final long uses;
+    private final int distinct;
+    private final long naiveHeapBytes;
+    private final long dictionaryHeapBytes;
+    private final long utf8Bytes;
+
+    Report(long uses, int distinct, long naiveHeapBytes, long dictionaryHeapBytes, long utf8Bytes) {
+      this.uses = uses;
+      this.distinct = distinct;
+      this.naiveHeapBytes = naiveHeapBytes;
+      this.dictionaryHeapBytes = dictionaryHeapBytes;
+      this.utf8Bytes = utf8Bytes;
+    }
+
+    long getUses() {
+      return uses;
+    }
+
+    int getDistinct() {
+      return distinct;
+    }
+
+    long getNaiveHeapBytes() {
+      return naiveHeapBytes;
+    }
+
+    long getDictionaryHeapBytes() {
+      return dictionaryHeapBytes;
+    }
+
+    long getUtf8Bytes() {
+      return utf8Bytes;
+    }
+
+    long getBytesSaved() {
+      return naiveHeapBytes - dictionaryHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Titles: %,d uses, %,d distinct. String heap %,d -> %,d bytes (%,d saved, %.1fx). UTF-8 arena %,d bytes.",
+          uses, distinct, naiveHeapBytes, dictionaryHeapBytes, getBytesSaved(),
+          dictionaryHeapBytes == 0 ? 1.0 : (double) naiveHeapBytes / dictionaryHeapBytes, utf8Bytes);
+    }
+  }
+}